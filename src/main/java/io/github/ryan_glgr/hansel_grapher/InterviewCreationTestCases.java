@@ -104,13 +104,35 @@ public class InterviewCreationTestCases {
         }
         final Interview interview = new Interview(normalizedDataset, mlModel);
         System.out.println("Beginning interview. k values: " + Arrays.toString(interview.kVals));
-        System.out.println("Number of nodes: " + interview.data.size());
+        System.out.println("Number of nodes: " + interview.lattice.size());
         interview.beginInterview(InterviewMode.BEST_MINIMUM_CONFIRMED);
         System.out.println("INTERVIEW COMPLETE!");
         System.out.println(interview);
         return interview;
     }
 
+    // same dataset at full integer resolution, which is way too many nodes to make. only what the interview touches gets made.
+    public static SparseInterview createSparseBreastCancerInterviewInPython(final MLModel mlModel) {
+
+        final String breastCancerDataset = String.join(File.separator, DATASETS_DIR, "breast-cancer-wisconsin-diagnostic.csv");
+        final NormalizedDataset normalizedDataset;
+        try {
+            normalizedDataset = DatasetNormalizer.loadOrCreateNormalizedDataset(breastCancerDataset,
+                    DatasetNormalizer.NormalizationMode.UNIQUE_INTEGERS,
+                    1.0f);
+
+        } catch (final IOException ioException) {
+            throw new RuntimeException(ioException);
+        }
+        final SparseInterview interview = new SparseInterview(normalizedDataset, mlModel);
+        System.out.println("Beginning sparse interview. k values: " + Arrays.toString(interview.kVals));
+        System.out.println("Number of nodes: " + interview.lattice.size());
+        interview.beginInterview();
+        System.out.println("INTERVIEW COMPLETE!");
+        System.out.println(interview);
+        return interview;
+    }
+
     // appendix C from: https://digitalcommons.cwu.edu/cgi/viewcontent.cgi?article=3037&context=etd
     // some of the k values were wrong for this table, so these weight can be wrong as well.
     // the k values in the table don't multiply out to the 27,648 number which is given.
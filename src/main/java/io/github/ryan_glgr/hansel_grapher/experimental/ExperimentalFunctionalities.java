@@ -3,6 +3,8 @@ package io.github.ryan_glgr.hansel_grapher.experimental;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnit;
 import io.github.ryan_glgr.hansel_grapher.stats.InterviewStats;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.HanselChains;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.ImpossibilityIndex;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Interview.Interview;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Interview.InterviewMode;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Interview.MagicFunctionMode;
@@ -13,9 +15,9 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class ExperimentalFunctionalities {
-    public static ArrayList<ArrayList<Node>> duplicateChain(final ArrayList<ArrayList<Node>> chains) {
+    public static ArrayList<ArrayList<Node>> duplicateChain(final List<? extends List<Node>> chains) {
         final ArrayList<ArrayList<Node>> dupChains = new ArrayList<>(chains.size());
-        for (final ArrayList<Node> chain : chains) {
+        for (final List<Node> chain : chains) {
             final ArrayList<Node> dupChain = new ArrayList<Node>(chain.size());
             for (final Node n : chain) {
                 dupChain.add(new Node(n));
@@ -26,11 +28,11 @@ public class ExperimentalFunctionalities {
     }
 
     public static void generateChains(final Integer[] kVals, final int numClasses) {
-        final HashMap<Integer, Node> data = Node.makeNodes(kVals, numClasses);
-        ArrayList<ArrayList<Node>> hanselChains;
-        ArrayList<ArrayList<Node>> defaultChains = HanselChains.generateHanselChainSet(kVals, data);
+        final Lattice lattice = Node.makeNodes(kVals, numClasses);
+        List<? extends List<Node>> hanselChains;
+        List<? extends List<Node>> defaultChains = HanselChains.generateHanselChainSet(kVals, lattice);
         final HashSet<Set<LowUnit>> lowUnits = new HashSet<>();
-        final int[] sizes = defaultChains.stream().mapToInt(ArrayList::size).toArray();
+        final int[] sizes = defaultChains.stream().mapToInt(List::size).toArray();
         final int[] lowValueIndices = new int[sizes.length];
         final MagicFunctionMode magicFunctionMode = MagicFunctionMode.KNOWN_LOW_UNITS_MODE;
 
@@ -86,10 +88,10 @@ public class ExperimentalFunctionalities {
 
             final Map<Integer, Set<Integer[]>> lowUnitsToMakeTheFunctionTrueByClass = new HashMap<>();
             for (final LowUnit lowUnit : nodes) {
-                Set<Integer[]> lowUnitsForThisNodesClass = lowUnitsToMakeTheFunctionTrueByClass.get(lowUnit.getDatapoint().classification);
+                Set<Integer[]> lowUnitsForThisNodesClass = lowUnitsToMakeTheFunctionTrueByClass.get(lowUnit.getDatapoint().getClassification());
                 if (Objects.isNull(lowUnitsForThisNodesClass)) {
-                    lowUnitsToMakeTheFunctionTrueByClass.put(lowUnit.getDatapoint().classification, new HashSet<>());
-                    lowUnitsForThisNodesClass = lowUnitsToMakeTheFunctionTrueByClass.get(lowUnit.getDatapoint().classification);
+                    lowUnitsToMakeTheFunctionTrueByClass.put(lowUnit.getDatapoint().getClassification(), new HashSet<>());
+                    lowUnitsForThisNodesClass = lowUnitsToMakeTheFunctionTrueByClass.get(lowUnit.getDatapoint().getClassification());
                 }
                 lowUnitsForThisNodesClass.add(lowUnit.getDatapoint().values);
             }
@@ -125,28 +127,18 @@ public class ExperimentalFunctionalities {
      * Structure of Impossible attribute combinations as follows. Pass a set of Maps. Each map represents a combination of k values which is impossible.
      * We assume anything >= each attribute in a map is impossible. for example i may make a map with entries 0: 2, and 1: 0,
      * this means that attribute (x0 >= 2 AND x1 >= 0) is an IMPOSSIBLE combination. And any node which satisfies x0 >=2
-     * AND x1 >= 0 is an IMPOSSIBLE combination.
+     * AND x1 >= 0 is an IMPOSSIBLE combination. the index the combinations end up in is handed back, so more regions (like a "<=" one) can be added later.
      */
-    public static void markImpossibleNodes(final Set<Map<Integer, Integer>> impossibleAttributeCombinations, final ArrayList<Node> nodes) {
+    public static ImpossibilityIndex markImpossibleNodes(final Set<Map<Integer, Integer>> impossibleAttributeCombinations, final Lattice lattice) {
+        final ImpossibilityIndex impossibilityIndex = new ImpossibilityIndex(lattice.kVals);
         if (Objects.isNull(impossibleAttributeCombinations))
-            return;
+            return impossibilityIndex;
 
-        nodes.parallelStream()
-                .filter(node -> nodeSatisfiesImpossibleAttributeCombination(node, impossibleAttributeCombinations))
-                .forEach(node -> {
-                    node.classification = Node.IMPOSSIBLE_CLASSIFICATION;
-                    node.classificationConfirmed = true;
-                });
-    }
-
-    private static boolean nodeSatisfiesImpossibleAttributeCombination(final Node targetNode, final Set<Map<Integer, Integer>> impossibleAttributeCombinations) {
-        // if all the entries in a map are satisfied, that means we have satisfied some impossible combination of attributes.
-        return impossibleAttributeCombinations.stream().anyMatch(impossibleAttributeCombination -> impossibleAttributeCombination
-                .entrySet()
-                .stream()
-                // key of entry is the attribute index, value is the impossible combo. So if all match the predicate,
-                // this node is >= the combination we said is impossible.
-                .allMatch(entry ->
-                        targetNode.values[entry.getKey()] >= entry.getValue()));
+        // each combination is a box of everything >= it. the index marks each box straight from its ranges of IDs.
+        for (final Map<Integer, Integer> impossibleAttributeCombination : impossibleAttributeCombinations) {
+            impossibilityIndex.add(ImpossibilityIndex.Box.atLeast(impossibleAttributeCombination, lattice.kVals));
+        }
+        impossibilityIndex.markImpossibleNodes(lattice);
+        return impossibilityIndex;
     }
 }
@@ -0,0 +1,142 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.util.Map;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+// one bitmap per (attribute, value) for "attribute >= value", and one for "attribute <= value". that's 2 * sum(k) bitmaps for the whole
+// lattice, rather than an up and down set stored for every node. the up-set of a node is then the AND of the d ">=" slices at its values,
+// and the down-set the AND of the d "<=" slices, built on demand.
+//
+// the slices never change. the only moving part is the set of unconfirmed nodes, which is kept up to date from the permeations.
+// since they're read only, they're held as immutable bitmaps, which a snapshot can hand us straight out of its file mapping.
+public class AttributeSliceIndex {
+
+    private final Lattice lattice;
+
+    // atLeast[a][v] holds every node with values[a] >= v. atMost[a][v] holds every node with values[a] <= v.
+    private final ImmutableRoaringBitmap[][] atLeast;
+    private final ImmutableRoaringBitmap[][] atMost;
+
+    private final RoaringBitmap unconfirmed;
+
+    // pass null slices to build them from scratch, or the slices from a snapshot of a lattice with the same k values.
+    AttributeSliceIndex(final Lattice lattice, final ImmutableRoaringBitmap[][] atLeast, final ImmutableRoaringBitmap[][] atMost) {
+        this.lattice = lattice;
+
+        if (atLeast != null && atMost != null) {
+            this.atLeast = atLeast;
+            this.atMost = atMost;
+        } else {
+            final int dimension = lattice.dimension();
+            this.atLeast = new ImmutableRoaringBitmap[dimension][];
+            this.atMost = new ImmutableRoaringBitmap[dimension][];
+            for (int attribute = 0; attribute < dimension; attribute++) {
+                final int k = lattice.kVals[attribute];
+                this.atLeast[attribute] = new ImmutableRoaringBitmap[k];
+                this.atMost[attribute] = new ImmutableRoaringBitmap[k];
+                for (int value = 0; value < k; value++) {
+                    this.atLeast[attribute][value] = slice(attribute, value, k);
+                    this.atMost[attribute][value] = slice(attribute, 0, value + 1);
+                }
+            }
+        }
+
+        // the index is made along with the lattice, before anyone has been confirmed.
+        this.unconfirmed = RoaringBitmap.bitmapOfRange(0, lattice.size());
+    }
+
+    // every node whose value in this attribute is in [from, to). in ID order those are evenly spaced runs, one per block of
+    // k * stride IDs, so the slice is built from range adds rather than one add per node.
+    private MutableRoaringBitmap slice(final int attribute, final int from, final int to) {
+        final MutableRoaringBitmap slice = new MutableRoaringBitmap();
+        final long stride = lattice.stride(attribute);
+        final long block = stride * lattice.kVals[attribute];
+        for (long blockStart = 0; blockStart < lattice.size(); blockStart += block) {
+            slice.add(blockStart + from * stride, blockStart + to * stride);
+        }
+        slice.runOptimize();
+        return slice;
+    }
+
+    // drops anyone in the given set who is now confirmed. safe to call again with the same nodes.
+    public void refresh(final RoaringBitmap nodeIDs) {
+        nodeIDs.forEach((final int nodeID) -> {
+            if (lattice.state.isConfirmed(nodeID)) {
+                unconfirmed.remove(nodeID);
+            } else {
+                unconfirmed.add(nodeID);
+            }
+        });
+    }
+
+    // the raw slices, for writing a snapshot. not to be modified.
+    ImmutableRoaringBitmap atLeastSlice(final int attribute, final int value) {
+        return atLeast[attribute][value];
+    }
+
+    ImmutableRoaringBitmap atMostSlice(final int attribute, final int value) {
+        return atMost[attribute][value];
+    }
+
+    public RoaringBitmap getUnconfirmed() {
+        return unconfirmed.clone();
+    }
+
+    // every node >= this one in all attributes, including itself.
+    public RoaringBitmap upSet(final int nodeID) {
+        return intersectSlices(nodeID, atLeast);
+    }
+
+    // every node <= this one in all attributes, including itself.
+    public RoaringBitmap downSet(final int nodeID) {
+        return intersectSlices(nodeID, atMost);
+    }
+
+    public RoaringBitmap unconfirmedUpSet(final int nodeID) {
+        final RoaringBitmap upSet = upSet(nodeID);
+        upSet.and(unconfirmed);
+        return upSet;
+    }
+
+    public RoaringBitmap unconfirmedDownSet(final int nodeID) {
+        final RoaringBitmap downSet = downSet(nodeID);
+        downSet.and(unconfirmed);
+        return downSet;
+    }
+
+    // every node which is >= the given value in each of the given attributes. attributes not in the map are unconstrained.
+    public RoaringBitmap atLeast(final Map<Integer, Integer> minimumValueByAttribute) {
+        MutableRoaringBitmap result = null;
+        for (final Map.Entry<Integer, Integer> entry : minimumValueByAttribute.entrySet()) {
+            final int attribute = entry.getKey();
+            final int value = entry.getValue();
+            if (attribute < 0 || attribute >= lattice.dimension()) {
+                throw new IllegalArgumentException(String.format("Attribute %d is not in a lattice of dimension %d.", attribute, lattice.dimension()));
+            }
+            // nobody is above the top of an attribute, and everybody is above the bottom.
+            if (value >= lattice.kVals[attribute]) {
+                return new RoaringBitmap();
+            }
+            final ImmutableRoaringBitmap slice = atLeast[attribute][Math.max(value, 0)];
+            if (result == null) {
+                result = slice.toMutableRoaringBitmap();
+            } else {
+                result.and(slice);
+            }
+        }
+        return result == null
+                ? RoaringBitmap.bitmapOfRange(0, lattice.size())
+                : result.toRoaringBitmap();
+    }
+
+    private RoaringBitmap intersectSlices(final int nodeID, final ImmutableRoaringBitmap[][] slices) {
+        final MutableRoaringBitmap result = slices[0][lattice.valueOf(nodeID, 0)].toMutableRoaringBitmap();
+        for (int attribute = 1; attribute < lattice.dimension(); attribute++) {
+            result.and(slices[attribute][lattice.valueOf(nodeID, attribute)]);
+        }
+        return result.toRoaringBitmap();
+    }
+}
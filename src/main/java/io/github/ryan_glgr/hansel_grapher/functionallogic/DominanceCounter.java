@@ -0,0 +1,115 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+// counts the points inside a box of the lattice, where each point also carries a small integer key (a class bound).
+// this is a d + 1 dimensional fenwick tree, the lattice attributes plus the key on the end, so adding or removing a
+// point and counting a box are both O(log k_0 * ... * log k_d-1 * log keys) instead of a walk over the box.
+//
+// a plain counter answers "how many points are <= this node in every attribute, with key <= maxKey", the down-set of the node.
+// a reversed counter flips every attribute (v -> k - 1 - v) before storing it, so the same prefix query gives the up-set instead.
+class DominanceCounter {
+
+    private final Lattice lattice;
+    private final boolean reversed;
+
+    // size of each dimension of the tree, and how far apart neighboring cells are in the flat array.
+    private final int[] sizes;
+    private final int[] strides;
+    private final int[] tree;
+
+    DominanceCounter(final Lattice lattice, final int numberOfKeys, final boolean reversed) {
+        this.lattice = lattice;
+        this.reversed = reversed;
+
+        final int dimension = lattice.dimension();
+        this.sizes = new int[dimension + 1];
+        for (int attribute = 0; attribute < dimension; attribute++) {
+            sizes[attribute] = lattice.kVals[attribute];
+        }
+        this.sizes[dimension] = numberOfKeys;
+
+        this.strides = new int[dimension + 1];
+        int cells = 1;
+        for (int d = 0; d < sizes.length; d++) {
+            strides[d] = cells;
+            try {
+                cells = Math.multiplyExact(cells, sizes[d]);
+            } catch (final ArithmeticException overflow) {
+                throw new IllegalArgumentException(String.format("Lattice of %d nodes with %d classes is too big to count dominance over.",
+                        lattice.size(), numberOfKeys), overflow);
+            }
+        }
+        this.tree = new int[cells];
+    }
+
+    // where this node lands in the tree, with the key as the last coordinate.
+    private int[] coordinatesOf(final int nodeID, final int key) {
+        final int dimension = lattice.dimension();
+        final int[] coordinates = new int[dimension + 1];
+        for (int attribute = 0; attribute < dimension; attribute++) {
+            final int value = lattice.valueOf(nodeID, attribute);
+            coordinates[attribute] = reversed
+                    ? sizes[attribute] - 1 - value
+                    : value;
+        }
+        coordinates[dimension] = key;
+        return coordinates;
+    }
+
+    void add(final int nodeID, final int key, final int delta) {
+        update(0, 0, coordinatesOf(nodeID, key), delta);
+    }
+
+    // for building in bulk. drop each point straight into its own cell, then call build() once to turn the cells into a fenwick tree.
+    // that's linear in the size of the tree, rather than a full log^d update per point.
+    void addUnbuilt(final int nodeID, final int key) {
+        final int[] coordinates = coordinatesOf(nodeID, key);
+        int cell = 0;
+        for (int d = 0; d < sizes.length; d++) {
+            cell += coordinates[d] * strides[d];
+        }
+        tree[cell]++;
+    }
+
+    // a fenwick tree in d dimensions is just the 1 dimensional one applied along each dimension in turn. along each dimension,
+    // every cell pushes its total to its fenwick parent, and walking the cells in increasing order means children are always done first.
+    void build() {
+        for (int d = 0; d < sizes.length; d++) {
+            for (int cell = 0; cell < tree.length; cell++) {
+                final int i = (cell / strides[d]) % sizes[d] + 1;
+                final int parent = i + (i & -i);
+                if (parent <= sizes[d]) {
+                    tree[cell + (parent - i) * strides[d]] += tree[cell];
+                }
+            }
+        }
+    }
+
+    // the number of points in the node's box (down-set, or up-set if reversed), including the node itself, with key <= maxKey.
+    int count(final int nodeID, final int maxKey) {
+        if (maxKey < 0)
+            return 0;
+        return query(0, 0, coordinatesOf(nodeID, Math.min(maxKey, sizes[sizes.length - 1] - 1)));
+    }
+
+    // standard fenwick walk, one nested loop per dimension.
+    private void update(final int d, final int offset, final int[] coordinates, final int delta) {
+        if (d == sizes.length) {
+            tree[offset] += delta;
+            return;
+        }
+        for (int i = coordinates[d] + 1; i <= sizes[d]; i += i & -i) {
+            update(d + 1, offset + (i - 1) * strides[d], coordinates, delta);
+        }
+    }
+
+    private int query(final int d, final int offset, final int[] coordinates) {
+        if (d == sizes.length) {
+            return tree[offset];
+        }
+        int sum = 0;
+        for (int i = coordinates[d] + 1; i > 0; i -= i & -i) {
+            sum += query(d + 1, offset + (i - 1) * strides[d], coordinates);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// every Hansel chain of a lattice, stored flat. chain c is nodeIDs[chainOffsets[c]] up to (not including) nodeIDs[chainOffsets[c + 1]],
+// bottom to top. the chains partition the lattice, so that's exactly one int per node, plus the reverse index of one chain and one
+// position per node, rather than an ArrayList (and its array, and its header) per chain.
+//
+// it is also a read only List of chains, each a List<Node> view over its run of IDs, for anything which just wants to walk them.
+//
+// the four runs of ints are held as buffers, so a snapshot can hand them over straight out of its file mapping, reverse index and all.
+public class HanselChainSet extends AbstractList<List<Node>> implements RandomAccess {
+
+    // checks every chain is a string of +1 steps covering every node exactly once. too slow to leave on for big lattices.
+    public static boolean VALIDATE_CHAINS = false;
+
+    private final Lattice lattice;
+
+    private final IntBuffer chainOffsets;
+    private final IntBuffer nodeIDs;
+
+    // which chain each node is in, and where in that chain.
+    private final IntBuffer chainOfNode;
+    private final IntBuffer positionOfNode;
+
+    // a snapshot hands over all four. freshly generated chains go through fromChains, which works out the reverse index.
+    HanselChainSet(final Lattice lattice,
+                   final IntBuffer chainOffsets,
+                   final IntBuffer nodeIDs,
+                   final IntBuffer chainOfNode,
+                   final IntBuffer positionOfNode) {
+        if (chainOffsets.get(chainOffsets.limit() - 1) != nodeIDs.limit()
+                || nodeIDs.limit() != lattice.size()
+                || chainOfNode.limit() != lattice.size()
+                || positionOfNode.limit() != lattice.size()) {
+            throw new IllegalArgumentException(String.format("Chains cover %d nodes, but the lattice has %d.", nodeIDs.limit(), lattice.size()));
+        }
+        this.lattice = lattice;
+        this.chainOffsets = chainOffsets;
+        this.nodeIDs = nodeIDs;
+        this.chainOfNode = chainOfNode;
+        this.positionOfNode = positionOfNode;
+
+        if (VALIDATE_CHAINS) {
+            validate();
+        }
+    }
+
+    static HanselChainSet fromChains(final Lattice lattice, final int[] chainOffsets, final int[] nodeIDs) {
+        final int[] chainOfNode = new int[nodeIDs.length];
+        final int[] positionOfNode = new int[nodeIDs.length];
+        for (int chain = 0; chain < chainOffsets.length - 1; chain++) {
+            for (int i = chainOffsets[chain]; i < chainOffsets[chain + 1]; i++) {
+                chainOfNode[nodeIDs[i]] = chain;
+                positionOfNode[nodeIDs[i]] = i - chainOffsets[chain];
+            }
+        }
+        return new HanselChainSet(lattice,
+                IntBuffer.wrap(chainOffsets),
+                IntBuffer.wrap(nodeIDs),
+                IntBuffer.wrap(chainOfNode),
+                IntBuffer.wrap(positionOfNode));
+    }
+
+    public int numberOfChains() {
+        return chainOffsets.limit() - 1;
+    }
+
+    public int chainLength(final int chain) {
+        return chainOffsets.get(chain + 1) - chainOffsets.get(chain);
+    }
+
+    public int nodeIDAt(final int chain, final int position) {
+        return nodeIDs.get(chainOffsets.get(chain) + position);
+    }
+
+    public int chainOf(final int nodeID) {
+        return chainOfNode.get(nodeID);
+    }
+
+    public int positionOf(final int nodeID) {
+        return positionOfNode.get(nodeID);
+    }
+
+    // the raw runs, for writing a snapshot. read only views, so their positions are ours to move.
+    IntBuffer chainOffsets() {
+        return chainOffsets.asReadOnlyBuffer();
+    }
+
+    IntBuffer nodeIDs() {
+        return nodeIDs.asReadOnlyBuffer();
+    }
+
+    IntBuffer chainOfNode() {
+        return chainOfNode.asReadOnlyBuffer();
+    }
+
+    IntBuffer positionOfNode() {
+        return positionOfNode.asReadOnlyBuffer();
+    }
+
+    @Override
+    public int size() {
+        return numberOfChains();
+    }
+
+    @Override
+    public List<Node> get(final int chain) {
+        final int from = chainOffsets.get(chain);
+        final int length = chainLength(chain);
+        return new ChainView(from, length);
+    }
+
+    private final class ChainView extends AbstractList<Node> implements RandomAccess {
+
+        private final int from;
+        private final int length;
+
+        private ChainView(final int from, final int length) {
+            this.from = from;
+            this.length = length;
+        }
+
+        @Override
+        public Node get(final int position) {
+            if (position < 0 || position >= length) {
+                throw new IndexOutOfBoundsException(String.format("Position %d is outside of a chain of length %d.", position, length));
+            }
+            return lattice.getNode(nodeIDs.get(from + position));
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    // simple check that each node of a chain is a hamming distance of + 1 from the next, and that no node shows up twice.
+    private void validate() {
+        final boolean[] seen = new boolean[nodeIDs.limit()];
+        for (int chain = 0; chain < numberOfChains(); chain++) {
+            for (int i = chainOffsets.get(chain); i < chainOffsets.get(chain + 1); i++) {
+                final int nodeID = nodeIDs.get(i);
+                if (seen[nodeID]) {
+                    throw new IllegalStateException(String.format("Node %d is in more than one Hansel chain.", nodeID));
+                }
+                seen[nodeID] = true;
+                if (chainOf(nodeID) != chain || positionOf(nodeID) != i - chainOffsets.get(chain)) {
+                    throw new IllegalStateException(String.format("Node %d is at position %d of Hansel chain %d, but is indexed at %d of %d.",
+                            nodeID, i - chainOffsets.get(chain), chain, positionOf(nodeID), chainOf(nodeID)));
+                }
+
+                if (i + 1 < chainOffsets.get(chain + 1)) {
+                    final Node lower = lattice.getNode(nodeID);
+                    final Node upper = lattice.getNode(nodeIDs.get(i + 1));
+                    if (lower.computeHammingDistance(upper) != 1 || !lower.isDominatedBy(upper, true)) {
+                        throw new IllegalStateException(String.format("Hansel chain %d steps from %s to %s.", chain, lower, upper));
+                    }
+                }
+            }
+        }
+    }
+}
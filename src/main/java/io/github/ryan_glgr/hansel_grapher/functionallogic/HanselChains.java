@@ -1,116 +1,124 @@
 package io.github.ryan_glgr.hansel_grapher.functionallogic;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.stream.IntStream;
 
 public class HanselChains{
-    
-    // function to create our chains
-    public static ArrayList<ArrayList<Node>> generateHanselChainSet(
-            final Integer[] kValues, final HashMap<Integer, Node> nodes) {
-
-        ArrayList<ArrayList<Node>> hanselChainSet = new ArrayList<>();
 
-        // initialize valsForChains with zeros
-        final Integer[] valsForChains = new Integer[kValues.length];
-        Arrays.fill(valsForChains, 0);
+    // function to create our chains. the chains are built straight into flat arrays of node IDs, one attribute at a time.
+    public static HanselChainSet generateHanselChainSet(
+            final Integer[] kValues, final Lattice lattice) {
 
-        // create the first chain (varying only the first digit)
-        final ArrayList<Node> baseChain = new ArrayList<>();
-        for (int firstDigitVal = 0; firstDigitVal < kValues[0]; firstDigitVal++) {
-            valsForChains[0] = firstDigitVal;
-            baseChain.add(nodes.get(Node.hash(valsForChains)));
-        }
-        hanselChainSet.add(baseChain);
+        // create the first chain (varying only the first digit). attribute 0 has a stride of 1, so these are just the first k IDs.
+        int[] chainOffsets = new int[] {0, kValues[0]};
+        int[] nodeIDs = IntStream.range(0, kValues[0]).toArray();
 
-        // expand dimension by dimension
+        // expand dimension by dimension. every chain is copied once per value of the new digit, and then the copies are adjusted.
         for (int digit = 1; digit < kValues.length; digit++) {
-            final int digitFinalBecauseJavaSucks = digit;
-            hanselChainSet = hanselChainSet
-                .parallelStream()
-                .flatMap(chain -> copyChainAndAdjustCopies(
-                    nodes,
-                    chain, 
-                    digitFinalBecauseJavaSucks, 
-                    kValues[digitFinalBecauseJavaSucks])
-                .stream())
-                .collect(Collectors.toCollection(ArrayList::new));
-        }
-
-        // final validation
-        hanselChainSet.forEach(chain -> assertTrue(checkValidChain(chain)));
-
-        return hanselChainSet;
-    }
-
-    private static ArrayList<ArrayList<Node>> copyChainAndAdjustCopies(final HashMap<Integer, Node> nodes, final ArrayList<Node> original, final int digit, final int kValue) {
-
-        final ArrayList<ArrayList<Node>> group = new ArrayList<>();
+            final int kValue = kValues[digit];
+            final int stride = lattice.stride(digit);
+            final int numberOfChains = chainOffsets.length - 1;
+            final int[] oldOffsets = chainOffsets;
+            final int[] oldNodeIDs = nodeIDs;
+
+            // a chain of length L makes min(k, L) copies which are non empty after adjusting, so we know where each chain's copies go up front.
+            final int[] firstNewChain = new int[numberOfChains + 1];
+            for (int chain = 0; chain < numberOfChains; chain++) {
+                firstNewChain[chain + 1] = firstNewChain[chain] + Math.min(kValue, oldOffsets[chain + 1] - oldOffsets[chain]);
+            }
 
-        // add the original chain (already has digit=0 case)
-        group.add(original);
+            // the copies of a chain hold exactly k times its nodes between them, so they start at k times where it started.
+            final int[] newOffsets = new int[firstNewChain[numberOfChains] + 1];
+            final int[] newNodeIDs = new int[oldNodeIDs.length * kValue];
+            IntStream.range(0, numberOfChains).parallel().forEach(chain -> {
+                final int from = oldOffsets[chain];
+                final int length = oldOffsets[chain + 1] - from;
+                int newChain = firstNewChain[chain];
+                int write = from * kValue;
+                for (int copy = 0; copy < Math.min(kValue, length); copy++) {
+                    newOffsets[newChain++] = write;
+                    write = copyChainAndAdjust(oldNodeIDs, from, length, copy, kValue, stride, newNodeIDs, write);
+                }
+            });
+            newOffsets[newOffsets.length - 1] = newNodeIDs.length;
 
-        // make copies for values 1..kValue-1
-        for (int val = 1; val < kValue; val++) {
-            final ArrayList<Node> copy = copyChainWithDigitValue(nodes, original, digit, val);
-            group.add(copy);
+            chainOffsets = newOffsets;
+            nodeIDs = newNodeIDs;
         }
 
-        // adjust group locally
-        adjustEndsOfIsomorphicChains(group);
-
-        return group;
+        return HanselChainSet.fromChains(lattice, chainOffsets, nodeIDs);
     }
 
-    // the recursive step. you copy all the values of a chain, but append your given digit to the front of each node.
-    private static ArrayList<Node> copyChainWithDigitValue(final HashMap<Integer, Node> nodes, final ArrayList<Node> chainToCopy, final int currentDigit, final int currentDigitVal) {
-
-        final ArrayList<Node> newChain = new ArrayList<>(chainToCopy.size());
-        for (final Node t : chainToCopy) {
-            final Integer[] newVals = Arrays.copyOf(t.values, t.values.length);
-            newVals[currentDigit] = currentDigitVal;
-            final Node temp = nodes.get(Node.hash(newVals));
-            newChain.add(temp);
+    // the recursive step, for one copy of one chain. the chain being copied always has 0 in the current digit, so the copy with value
+    // 'copy' is just every ID shifted by that many strides.
+    //
+    // then the ends of the isomorphic copies get adjusted: each copy gives its top node to every copy before it, in order. for example
+    // [0,0] - [0,1] gets [1,1] from the chain [1,0] - [1,1]. so copy i keeps its bottom L - i nodes, and then gets the top of those
+    // from each of the copies i + 1 ... k - 1 stacked on. returns where the next chain starts writing.
+    private static int copyChainAndAdjust(final int[] chainNodeIDs,
+                                          final int from,
+                                          final int length,
+                                          final int copy,
+                                          final int kValue,
+                                          final int stride,
+                                          final int[] into,
+                                          int write) {
+        final int kept = length - copy;
+        final int offset = copy * stride;
+        for (int i = 0; i < kept; i++) {
+            into[write++] = chainNodeIDs[from + i] + offset;
         }
-        return newChain;
-    }
-
-    // takes the end of one isomorphic chain, and moves it to the end of the next isomorphic chain. for example [0,0] - [0,1] gets [1,1] from the chain [1,0] - [1,1]..
-    private static void adjustEndsOfIsomorphicChains(final ArrayList<ArrayList<Node>> group) {
-        final int n = group.size();
-        if (n < 2) return;
-
-        // For each chain, take the top nodes from all chains after it and add them to this chain
-        for (int i = 0; i < n - 1; i++) {
-            final ArrayList<Node> receivingChain = group.get(i);
-            for (int j = i + 1; j < n; j++) {
-                final ArrayList<Node> donatingChain = group.get(j);
-                if (!donatingChain.isEmpty()) {
-                    final Node topNode = donatingChain.removeLast();
-                    receivingChain.add(topNode);
-                }
-            }
+        final int topKept = chainNodeIDs[from + kept - 1];
+        for (int donor = copy + 1; donor < kValue; donor++) {
+            into[write++] = topKept + donor * stride;
         }
-
-        // Remove any chains that became empty
-        group.removeIf(List::isEmpty);
+        return write;
     }
 
-    // simple helper which checks that all the nodes of a chain have a hamming distance of + 1 from the next.
-    private static boolean checkValidChain(final ArrayList<Node> chain) {
-
-        for (int lowerNode = 0; lowerNode < chain.size() - 1; lowerNode++) {
-            final int upperNode = lowerNode + 1;
+    // the one chain of generateHanselChainSet which goes through this datapoint, without building any of the others. used by the sparse
+    // lattice, where there are far too many chains to make them all.
+    //
+    // adjusting a group of k copies of a chain of length L leaves copy i with its bottom L - i nodes, plus the top of each of those
+    // with the current digit raised from i + 1 up to k - 1. so going up one attribute at a time, we only need to know the length
+    // of the chain we're in and our position in it to know which copy we land in, and the copies we chose to rebuild the chain after.
+    public static List<Integer[]> chainThrough(final Integer[] values, final Integer[] kValues) {
+
+        final int[] copyAtEachDigit = new int[kValues.length];
+        int length = kValues[0];
+        int position = values[0];
+        for (int digit = 1; digit < kValues.length; digit++) {
+            final int value = values[digit];
+            // either we're low enough in our chain to stay in the copy with our own digit, or we got moved onto the top of an earlier copy.
+            final int copy = Math.min(value, length - 1 - position);
+            position += value - copy;
+            copyAtEachDigit[digit] = copy;
+            length += kValues[digit] - 1 - 2 * copy;
+        }
 
-            // Use the Node instance method to compute the Hamming distance
-            final int hammingDistance = chain.get(lowerNode).computeHammingDistance(chain.get(upperNode));
-            
-            if (hammingDistance != 1) 
-                return false;
+        // now replay those choices, starting from the base chain.
+        List<Integer[]> chain = new ArrayList<>(kValues[0]);
+        for (int firstDigitVal = 0; firstDigitVal < kValues[0]; firstDigitVal++) {
+            final Integer[] point = new Integer[kValues.length];
+            Arrays.fill(point, 0);
+            point[0] = firstDigitVal;
+            chain.add(point);
         }
-        return true;
+        for (int digit = 1; digit < kValues.length; digit++) {
+            final int copy = copyAtEachDigit[digit];
+            final int kept = chain.size() - copy;
+            final List<Integer[]> adjusted = new ArrayList<>(kept + kValues[digit] - 1 - copy);
+            for (int i = 0; i < kept; i++) {
+                final Integer[] point = Arrays.copyOf(chain.get(i), kValues.length);
+                point[digit] = copy;
+                adjusted.add(point);
+            }
+            for (int donor = copy + 1; donor < kValues[digit]; donor++) {
+                final Integer[] point = Arrays.copyOf(chain.get(kept - 1), kValues.length);
+                point[digit] = donor;
+                adjusted.add(point);
+            }
+            chain = adjusted;
+        }
+        return chain;
     }
-
-}
\ No newline at end of file
+}
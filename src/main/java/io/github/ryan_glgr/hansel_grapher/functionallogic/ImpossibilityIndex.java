@@ -0,0 +1,216 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.roaringbitmap.RoaringBitmap;
+
+// the regions of the lattice which can't exist. each one is an axis aligned box: a lowest and a highest value (inclusive) in every
+// attribute. a ">=" combination is a box running to the top of every attribute, and a "<=" combination one running to the bottom, so
+// being infeasible for being too high and for being too low are both just boxes, and so is anything with a bit of each.
+//
+// a box is marked straight from its mixed radix ranges, so marking costs the size of the impossible region, not nodes times boxes.
+// a point is tested against every box at once: for each (attribute, value) we keep a bitmask of the boxes covering it, and the point
+// is impossible if the masks at its d values have a box in common.
+public class ImpossibilityIndex {
+
+    // lowest[a] <= values[a] <= highest[a] in every attribute a.
+    public record Box(int[] lowest, int[] highest) {
+
+        // everything >= the given value in each of the given attributes. attributes not in the map are unconstrained.
+        public static Box atLeast(final Map<Integer, Integer> minimumValueByAttribute, final Integer[] kVals) {
+            return between(minimumValueByAttribute, Map.of(), kVals);
+        }
+
+        // everything <= the given value in each of the given attributes.
+        public static Box atMost(final Map<Integer, Integer> maximumValueByAttribute, final Integer[] kVals) {
+            return between(Map.of(), maximumValueByAttribute, kVals);
+        }
+
+        // everything >= this datapoint in every attribute.
+        public static Box upSetOf(final Integer[] values, final Integer[] kVals) {
+            final int[] lowest = new int[kVals.length];
+            final int[] highest = new int[kVals.length];
+            for (int attribute = 0; attribute < kVals.length; attribute++) {
+                lowest[attribute] = values[attribute];
+                highest[attribute] = kVals[attribute] - 1;
+            }
+            return new Box(lowest, highest);
+        }
+
+        public static Box between(final Map<Integer, Integer> minimumValueByAttribute,
+                                  final Map<Integer, Integer> maximumValueByAttribute,
+                                  final Integer[] kVals) {
+            final int[] lowest = new int[kVals.length];
+            final int[] highest = new int[kVals.length];
+            for (int attribute = 0; attribute < kVals.length; attribute++) {
+                highest[attribute] = kVals[attribute] - 1;
+            }
+            for (final Map.Entry<Integer, Integer> entry : minimumValueByAttribute.entrySet()) {
+                final int attribute = checkAttribute(entry.getKey(), kVals);
+                lowest[attribute] = Math.max(lowest[attribute], entry.getValue());
+            }
+            for (final Map.Entry<Integer, Integer> entry : maximumValueByAttribute.entrySet()) {
+                final int attribute = checkAttribute(entry.getKey(), kVals);
+                highest[attribute] = Math.min(highest[attribute], entry.getValue());
+            }
+            return new Box(lowest, highest);
+        }
+
+        private static int checkAttribute(final int attribute, final Integer[] kVals) {
+            if (attribute < 0 || attribute >= kVals.length) {
+                throw new IllegalArgumentException(String.format("Attribute %d is not in a lattice of dimension %d.", attribute, kVals.length));
+            }
+            return attribute;
+        }
+
+        // a box asking for more than an attribute has, or for a lowest value above its highest, holds nobody.
+        public boolean isEmpty() {
+            for (int attribute = 0; attribute < lowest.length; attribute++) {
+                if (lowest[attribute] > highest[attribute]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean contains(final Integer[] values) {
+            for (int attribute = 0; attribute < lowest.length; attribute++) {
+                if (values[attribute] < lowest[attribute] || values[attribute] > highest[attribute]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(lowest) + " to " + Arrays.toString(highest);
+        }
+    }
+
+    private final Integer[] kVals;
+    private final List<Box> boxes = new ArrayList<>();
+
+    // boxesCovering[a][v] has bit b set (in word b / 64) if box b covers value v of attribute a.
+    private final long[][][] boxesCovering;
+    private int numberOfWords = 0;
+
+    public ImpossibilityIndex(final Integer[] kVals) {
+        this.kVals = kVals;
+        this.boxesCovering = new long[kVals.length][][];
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            boxesCovering[attribute] = new long[kVals[attribute]][0];
+        }
+    }
+
+    public void add(final Box box) {
+        if (box.lowest().length != kVals.length || box.highest().length != kVals.length) {
+            throw new IllegalArgumentException(String.format("Box %s does not fit a lattice of dimension %d.", box, kVals.length));
+        }
+        // an empty box covers nothing, so it needn't take up a bit.
+        if (box.isEmpty())
+            return;
+
+        final int bit = boxes.size();
+        boxes.add(box);
+        if (bit / Long.SIZE >= numberOfWords) {
+            numberOfWords++;
+            for (final long[][] masksOfAttribute : boxesCovering) {
+                for (int value = 0; value < masksOfAttribute.length; value++) {
+                    masksOfAttribute[value] = Arrays.copyOf(masksOfAttribute[value], numberOfWords);
+                }
+            }
+        }
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            for (int value = Math.max(0, box.lowest()[attribute]); value <= Math.min(kVals[attribute] - 1, box.highest()[attribute]); value++) {
+                boxesCovering[attribute][value][bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+            }
+        }
+    }
+
+    public List<Box> getBoxes() {
+        return List.copyOf(boxes);
+    }
+
+    // O(d) per 64 boxes, and nothing about the lattice has to exist.
+    public boolean isImpossible(final Integer[] values) {
+        for (int word = 0; word < numberOfWords; word++) {
+            long shared = -1L;
+            for (int attribute = 0; attribute < kVals.length && shared != 0; attribute++) {
+                shared &= boxesCovering[attribute][values[attribute]][word];
+            }
+            if (shared != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // every node of the lattice in this box. the attributes below the first one the box doesn't span completely are a single run of IDs
+    // together with that one, so that's one range per combination of the attributes above it, walked like a counter.
+    public RoaringBitmap nodesIn(final Box box, final Lattice lattice) {
+        final RoaringBitmap members = new RoaringBitmap();
+        if (box.isEmpty())
+            return members;
+
+        final int[] lowest = new int[kVals.length];
+        final int[] highest = new int[kVals.length];
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            lowest[attribute] = Math.max(0, box.lowest()[attribute]);
+            highest[attribute] = Math.min(kVals[attribute] - 1, box.highest()[attribute]);
+        }
+
+        int firstPartial = 0;
+        while (firstPartial < kVals.length - 1 && lowest[firstPartial] == 0 && highest[firstPartial] == kVals[firstPartial] - 1) {
+            firstPartial++;
+        }
+        final long runStart = (long) lowest[firstPartial] * lattice.stride(firstPartial);
+        final long runEnd = (long) (highest[firstPartial] + 1) * lattice.stride(firstPartial);
+
+        final int[] counter = Arrays.copyOf(lowest, lowest.length);
+        while (true) {
+            long offset = 0;
+            for (int attribute = firstPartial + 1; attribute < kVals.length; attribute++) {
+                offset += (long) counter[attribute] * lattice.stride(attribute);
+            }
+            members.add(offset + runStart, offset + runEnd);
+
+            int attribute = firstPartial + 1;
+            while (attribute < kVals.length && counter[attribute] == highest[attribute]) {
+                counter[attribute] = lowest[attribute];
+                attribute++;
+            }
+            if (attribute >= kVals.length)
+                return members;
+            counter[attribute]++;
+        }
+    }
+
+    // marks every node in any of our boxes as impossible (and confirmed), and returns them.
+    public RoaringBitmap markImpossibleNodes(final Lattice lattice) {
+        final RoaringBitmap impossibleNodes = new RoaringBitmap();
+        for (final Box box : boxes) {
+            impossibleNodes.or(nodesIn(box, lattice));
+        }
+        mark(impossibleNodes, lattice);
+        return impossibleNodes;
+    }
+
+    // the same, for just one box, after it has been added.
+    public RoaringBitmap markImpossibleNodes(final Box box, final Lattice lattice) {
+        final RoaringBitmap impossibleNodes = nodesIn(box, lattice);
+        mark(impossibleNodes, lattice);
+        return impossibleNodes;
+    }
+
+    private static void mark(final RoaringBitmap impossibleNodes, final Lattice lattice) {
+        impossibleNodes.forEach((final int nodeID) -> {
+            lattice.state.setFloor(nodeID, Node.IMPOSSIBLE_CLASSIFICATION);
+            lattice.state.setConfirmed(nodeID, true);
+        });
+        lattice.refreshIndexes(impossibleNodes, impossibleNodes);
+    }
+}
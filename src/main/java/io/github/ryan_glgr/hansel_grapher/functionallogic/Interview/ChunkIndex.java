@@ -0,0 +1,241 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.HanselChainSet;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// the chunks of the Hansel chains the chain based interview modes are still working on. a chunk is a run of positions [from, to) in one chain.
+// once split, a chunk holds only unconfirmed nodes, so a question can only touch the chunks its newly confirmed nodes sit in. each of those
+// is found by its chain and position, and cut around the node. nothing else is looked at.
+//
+// the chunks sit in an indexed max heap by length, so the longest is always on top. ties go to the lowest chain, then the lowest position,
+// which is the same chunk Collections.max would have picked out of the chunks in chain order.
+class ChunkIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final HanselChainSet hanselChains;
+    private final LatticeState state;
+
+    // chunk slots. a slot is recycled once its chunk is split or used up.
+    private int[] chainOfChunk = new int[INITIAL_CAPACITY];
+    private int[] fromOfChunk = new int[INITIAL_CAPACITY];
+    private int[] toOfChunk = new int[INITIAL_CAPACITY];
+    private int[] heapPositionOfChunk = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int numberOfFreeSlots = 0;
+    private int numberOfSlots = 0;
+
+    private int[] heap = new int[INITIAL_CAPACITY];
+    private int heapSize = 0;
+
+    // every chunk by (chain, from), to find the one a node is in.
+    private final TreeMap<Long, Integer> chunkByStart = new TreeMap<>();
+
+    // whole chains go in as they are, confirmed nodes and all, and are only split up the first time anything changes.
+    private boolean needsFullSplit;
+
+    private ChunkIndex(final HanselChainSet hanselChains, final LatticeState state) {
+        this.hanselChains = hanselChains;
+        this.state = state;
+    }
+
+    // every whole chain, in one chunk each.
+    static ChunkIndex overChains(final HanselChainSet hanselChains, final LatticeState state) {
+        final ChunkIndex chunkIndex = new ChunkIndex(hanselChains, state);
+        for (int chain = 0; chain < hanselChains.numberOfChains(); chain++) {
+            chunkIndex.add(chain, 0, hanselChains.chainLength(chain));
+        }
+        chunkIndex.needsFullSplit = true;
+        return chunkIndex;
+    }
+
+    // a new index holding just the unconfirmed pieces of our longest chunk. this one is left as it is.
+    ChunkIndex piecesOfLongest() {
+        final ChunkIndex pieces = new ChunkIndex(hanselChains, state);
+        final int longest = heap[0];
+        pieces.addUnconfirmedPieces(chainOfChunk[longest], fromOfChunk[longest], toOfChunk[longest]);
+        return pieces;
+    }
+
+    boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    // the longest chunk, bottom to top.
+    List<Node> longest() {
+        return chunkAsList(heap[0]);
+    }
+
+    // the longest chunk of each chain which still has one, in chain order, bottom to top. ties go to the lowest chunk of the chain.
+    List<List<Node>> longestOfEachChain() {
+        final List<List<Node>> longestChunks = new ArrayList<>();
+        int currentChain = -1;
+        int best = -1;
+        for (final int chunk : chunkByStart.values()) {
+            if (chainOfChunk[chunk] != currentChain) {
+                if (best != -1)
+                    longestChunks.add(chunkAsList(best));
+                currentChain = chainOfChunk[chunk];
+                best = chunk;
+            } else if (toOfChunk[chunk] - fromOfChunk[chunk] > toOfChunk[best] - fromOfChunk[best]) {
+                best = chunk;
+            }
+        }
+        if (best != -1)
+            longestChunks.add(chunkAsList(best));
+        return longestChunks;
+    }
+
+    private List<Node> chunkAsList(final int chunk) {
+        return hanselChains.get(chainOfChunk[chunk]).subList(fromOfChunk[chunk], toOfChunk[chunk]);
+    }
+
+    // cuts every newly confirmed node out of whatever chunk it's in.
+    void refresh(final RoaringBitmap nodesConfirmed) {
+        if (needsFullSplit) {
+            splitEverything();
+            return;
+        }
+        nodesConfirmed.forEach((final int nodeID) -> {
+            final int chain = hanselChains.chainOf(nodeID);
+            final int position = hanselChains.positionOf(nodeID);
+            final Map.Entry<Long, Integer> entry = chunkByStart.floorEntry(key(chain, position));
+            if (entry == null)
+                return;
+
+            final int chunk = entry.getValue();
+            if (chainOfChunk[chunk] != chain || toOfChunk[chunk] <= position)
+                return;
+
+            final int from = fromOfChunk[chunk];
+            final int to = toOfChunk[chunk];
+            remove(chunk);
+            add(chain, from, position);
+            add(chain, position + 1, to);
+        });
+    }
+
+    private void splitEverything() {
+        final int[] chunks = Arrays.copyOf(heap, heapSize);
+        for (final int chunk : chunks) {
+            final int chain = chainOfChunk[chunk];
+            final int from = fromOfChunk[chunk];
+            final int to = toOfChunk[chunk];
+            remove(chunk);
+            addUnconfirmedPieces(chain, from, to);
+        }
+        needsFullSplit = false;
+    }
+
+    private void addUnconfirmedPieces(final int chain, final int from, final int to) {
+        int pieceStart = from;
+        for (int position = from; position < to; position++) {
+            if (state.isConfirmed(hanselChains.nodeIDAt(chain, position))) {
+                add(chain, pieceStart, position);
+                pieceStart = position + 1;
+            }
+        }
+        add(chain, pieceStart, to);
+    }
+
+    private static long key(final int chain, final int position) {
+        return ((long) chain << Integer.SIZE) | position;
+    }
+
+    private void add(final int chain, final int from, final int to) {
+        if (from >= to)
+            return;
+
+        final int chunk;
+        if (numberOfFreeSlots > 0) {
+            chunk = freeSlots[--numberOfFreeSlots];
+        } else {
+            if (numberOfSlots == chainOfChunk.length) {
+                final int capacity = numberOfSlots * 2;
+                chainOfChunk = Arrays.copyOf(chainOfChunk, capacity);
+                fromOfChunk = Arrays.copyOf(fromOfChunk, capacity);
+                toOfChunk = Arrays.copyOf(toOfChunk, capacity);
+                heapPositionOfChunk = Arrays.copyOf(heapPositionOfChunk, capacity);
+                heap = Arrays.copyOf(heap, capacity);
+                freeSlots = Arrays.copyOf(freeSlots, capacity);
+            }
+            chunk = numberOfSlots++;
+        }
+        chainOfChunk[chunk] = chain;
+        fromOfChunk[chunk] = from;
+        toOfChunk[chunk] = to;
+        chunkByStart.put(key(chain, from), chunk);
+
+        heap[heapSize] = chunk;
+        heapPositionOfChunk[chunk] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    private void remove(final int chunk) {
+        chunkByStart.remove(key(chainOfChunk[chunk], fromOfChunk[chunk]));
+
+        final int position = heapPositionOfChunk[chunk];
+        heapSize--;
+        if (position != heapSize) {
+            heap[position] = heap[heapSize];
+            heapPositionOfChunk[heap[position]] = position;
+            siftDown(position);
+            siftUp(position);
+        }
+        freeSlots[numberOfFreeSlots++] = chunk;
+    }
+
+    // true if chunk a belongs above chunk b.
+    private boolean outranks(final int a, final int b) {
+        final int lengthA = toOfChunk[a] - fromOfChunk[a];
+        final int lengthB = toOfChunk[b] - fromOfChunk[b];
+        if (lengthA != lengthB)
+            return lengthA > lengthB;
+        if (chainOfChunk[a] != chainOfChunk[b])
+            return chainOfChunk[a] < chainOfChunk[b];
+        return fromOfChunk[a] < fromOfChunk[b];
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) / 2;
+            if (!outranks(heap[position], heap[parent]))
+                return;
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = 2 * position + 1;
+            final int right = left + 1;
+            int best = position;
+            if (left < heapSize && outranks(heap[left], heap[best]))
+                best = left;
+            if (right < heapSize && outranks(heap[right], heap[best]))
+                best = right;
+            if (best == position)
+                return;
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        final int chunk = heap[i];
+        heap[i] = heap[j];
+        heap[j] = chunk;
+        heapPositionOfChunk[heap[i]] = i;
+        heapPositionOfChunk[heap[j]] = j;
+    }
+}
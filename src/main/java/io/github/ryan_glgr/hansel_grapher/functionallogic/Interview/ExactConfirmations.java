@@ -0,0 +1,73 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import io.github.ryan_glgr.hansel_grapher.stats.PermeationStats;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// picks the best of a shortlist of nodes by what each of their answers would really do. every class each node could still be is
+// permeated on its own overlay of the state, all at once, and the nodes are compared by how many nodes each answer confirmed, the same
+// way BY_MIN_CLASSIFICATIONS compares the counts from the umbrella index. those counts can be off when the index hasn't caught up yet,
+// these can't. ties go to the answer which moves more bounds, and then to whoever came first in the shortlist.
+class ExactConfirmations {
+
+    private final Lattice lattice;
+    private final LatticeState state;
+    private final int numClasses;
+
+    ExactConfirmations(final Lattice lattice) {
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.numClasses = state.numClasses;
+    }
+
+    Node best(final List<Node> shortlist) {
+        if (shortlist.isEmpty()) {
+            throw new IllegalArgumentException("Can't pick the best node out of an empty shortlist.");
+        }
+
+        // numClasses per node, back to back. NOT_SET for the classes a node can't be.
+        final int[] confirmations = new int[shortlist.size() * numClasses];
+        final int[] nodesTouched = new int[shortlist.size() * numClasses];
+        Arrays.fill(confirmations, LatticeState.NOT_SET);
+        Arrays.fill(nodesTouched, LatticeState.NOT_SET);
+
+        IntStream.range(0, shortlist.size() * numClasses).parallel().forEach(slot -> {
+            final int nodeID = shortlist.get(slot / numClasses).nodeID;
+            final int classification = slot % numClasses;
+            if (classification < state.floor(nodeID) || classification > state.ceiling(nodeID))
+                return;
+            final PermeationStats stats = lattice.permeateClassification(state.overlay(), nodeID, classification);
+            confirmations[slot] = stats.numberOfConfirmations;
+            nodesTouched[slot] = stats.totalNumberOfNodesTouched;
+        });
+
+        for (int candidate = 0; candidate < shortlist.size(); candidate++) {
+            sortEachNode(confirmations, candidate);
+            sortEachNode(nodesTouched, candidate);
+        }
+
+        int best = 0;
+        for (int candidate = 1; candidate < shortlist.size(); candidate++) {
+            final int cmp = compareNodes(confirmations, candidate, best);
+            if (cmp > 0 || (cmp == 0 && compareNodes(nodesTouched, candidate, best) > 0)) {
+                best = candidate;
+            }
+        }
+        return shortlist.get(best);
+    }
+
+    private void sortEachNode(final int[] counts, final int candidate) {
+        Arrays.sort(counts, candidate * numClasses, (candidate + 1) * numClasses);
+    }
+
+    // left to right, like BY_MIN_CLASSIFICATIONS. the worst answer decides first.
+    private int compareNodes(final int[] counts, final int a, final int b) {
+        return Arrays.compare(counts, a * numClasses, (a + 1) * numClasses,
+                counts, b * numClasses, (b + 1) * numClasses);
+    }
+}
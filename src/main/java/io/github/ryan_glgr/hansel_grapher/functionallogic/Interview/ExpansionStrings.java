@@ -0,0 +1,154 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+
+// the longest string of expansions starting at every unconfirmed node: that node, then one of its unconfirmed up neighbors, then one of
+// its, as far as we can go. an up neighbor always has a higher ID than we do, so one pass over the IDs from the top down works them all out.
+//
+// confirming nodes only ever shortens strings, and only for nodes below the ones confirmed. so after a question we start at the down
+// neighbors of what it confirmed and work downwards, and stop wherever a length comes out the same as it was.
+//
+// the nodes are also kept in one bitmap per length, so the longest string is the lowest ID in the highest bitmap which isn't empty.
+class ExpansionStrings {
+
+    private final Lattice lattice;
+    private final LatticeState state;
+
+    // 0 for a confirmed node.
+    private final int[] lengthOfNode;
+    private final RoaringBitmap[] nodesOfLength;
+    private int longest = 0;
+
+    // what it has cost us, for the summary at the end of the interview.
+    private int lengthsWorkedOut = 0;
+    private long nanosSpent = 0;
+
+    ExpansionStrings(final Lattice lattice) {
+        final long start = System.nanoTime();
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.lengthOfNode = new int[lattice.size()];
+
+        // the longest string can go from the bottom to the top, + 1 at a time.
+        int longestPossible = 1;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            longestPossible += lattice.getNode(lattice.size() - 1).values[attribute];
+        }
+        this.nodesOfLength = new RoaringBitmap[longestPossible + 1];
+        for (int length = 0; length <= longestPossible; length++) {
+            nodesOfLength[length] = new RoaringBitmap();
+        }
+
+        for (int nodeID = lattice.size() - 1; nodeID >= 0; nodeID--) {
+            if (state.isConfirmed(nodeID))
+                continue;
+            final int length = lengthFromAbove(nodeID);
+            lengthOfNode[nodeID] = length;
+            nodesOfLength[length].add(nodeID);
+            longest = Math.max(longest, length);
+        }
+        nanosSpent += System.nanoTime() - start;
+    }
+
+    boolean isEmpty() {
+        return longest == 0;
+    }
+
+    // takes out the nodes this question confirmed, and works out again the lengths of whatever is below them.
+    void update(final RoaringBitmap nodesConfirmed) {
+        final long start = System.nanoTime();
+        final RoaringBitmap toWorkOut = new RoaringBitmap();
+        nodesConfirmed.forEach((final int nodeID) -> {
+            if (lengthOfNode[nodeID] == 0)
+                return;
+            setLength(nodeID, 0);
+            addDownNeighbors(nodeID, toWorkOut);
+        });
+
+        // every node we queue is below the one which queued it, so going from the highest ID down, a node is never looked at until
+        // everything above it which is going to change has.
+        while (!toWorkOut.isEmpty()) {
+            final int nodeID = toWorkOut.last();
+            toWorkOut.remove(nodeID);
+            final int length = lengthFromAbove(nodeID);
+            if (length != lengthOfNode[nodeID]) {
+                setLength(nodeID, length);
+                addDownNeighbors(nodeID, toWorkOut);
+            }
+        }
+
+        while (longest > 0 && nodesOfLength[longest].isEmpty()) {
+            longest--;
+        }
+        nanosSpent += System.nanoTime() - start;
+    }
+
+    // the longest string there is, from the lowest node it could start at. at each step we go to the first up neighbor, in attribute
+    // order, whose string is one shorter than ours.
+    ArrayList<Node> longestString() {
+        final long start = System.nanoTime();
+        final ArrayList<Node> string = new ArrayList<>(longest);
+        if (longest == 0)
+            return string;
+
+        int current = nodesOfLength[longest].first();
+        while (true) {
+            string.add(lattice.getNode(current));
+            final int nextLength = lengthOfNode[current] - 1;
+            if (nextLength == 0)
+                break;
+            for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                final int upNeighbor = lattice.upNeighborID(current, attribute);
+                if (upNeighbor != Lattice.NO_NEIGHBOR && lengthOfNode[upNeighbor] == nextLength) {
+                    current = upNeighbor;
+                    break;
+                }
+            }
+        }
+        nanosSpent += System.nanoTime() - start;
+        return string;
+    }
+
+    int lengthsWorkedOut() {
+        return lengthsWorkedOut;
+    }
+
+    long millisSpent() {
+        return nanosSpent / 1_000_000;
+    }
+
+    // 1 for a node with no unconfirmed up neighbors, otherwise one more than the longest string of any of them.
+    private int lengthFromAbove(final int nodeID) {
+        lengthsWorkedOut++;
+        int longestAbove = 0;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int upNeighbor = lattice.upNeighborID(nodeID, attribute);
+            if (upNeighbor != Lattice.NO_NEIGHBOR) {
+                longestAbove = Math.max(longestAbove, lengthOfNode[upNeighbor]);
+            }
+        }
+        return longestAbove + 1;
+    }
+
+    private void setLength(final int nodeID, final int length) {
+        nodesOfLength[lengthOfNode[nodeID]].remove(nodeID);
+        lengthOfNode[nodeID] = length;
+        if (length > 0) {
+            nodesOfLength[length].add(nodeID);
+        }
+    }
+
+    private void addDownNeighbors(final int nodeID, final RoaringBitmap toWorkOut) {
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+            if (downNeighbor != Lattice.NO_NEIGHBOR && !state.isConfirmed(downNeighbor)) {
+                toWorkOut.add(downNeighbor);
+            }
+        }
+    }
+}
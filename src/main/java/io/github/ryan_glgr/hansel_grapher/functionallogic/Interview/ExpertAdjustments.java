@@ -0,0 +1,196 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// corrections the expert makes once the interview is over: giving a node a different class, taking an answer back, or marking a node
+// infeasible. every floor is just the max of the answers below a node, and every ceiling the min of the answers above it. so changing
+// one answer can only move floors in that node's up-set and ceilings in its down-set. those two cones are worked out again from the
+// answers which are left, and nothing outside of them is looked at.
+class ExpertAdjustments {
+
+    // what one adjustment changed. the reclassified nodes are the ones whose class (their floor) moved, which is all the low units
+    // have to hear about.
+    record Adjustment(RoaringBitmap nodesAdjusted, RoaringBitmap nodesReclassified) {
+
+        private Adjustment() {
+            this(new RoaringBitmap(), new RoaringBitmap());
+        }
+    }
+
+    private final Lattice lattice;
+    private final LatticeState state;
+
+    // the nodes the expert classified directly. every other bound comes from these, apart from the impossible nodes, which stay put.
+    private final RoaringBitmap answeredNodes = new RoaringBitmap();
+
+    ExpertAdjustments(final Lattice lattice, final List<Node> nodesAsked) {
+        this.lattice = lattice;
+        this.state = lattice.state;
+        for (final Node node : nodesAsked) {
+            answeredNodes.add(node.nodeID);
+        }
+    }
+
+    // gives this node a new class, as if the expert had answered that in the first place.
+    Adjustment override(final Node node, final int classification) {
+        if (classification < 0 || classification >= state.numClasses) {
+            throw new IllegalArgumentException(String.format("Classification %d is not one of our %d classes.", classification, state.numClasses));
+        }
+        final int nodeID = node.nodeID;
+        if (isImpossible(nodeID)) {
+            throw new IllegalStateException(String.format("Node %d is impossible, and can't be given classification %d.", nodeID, classification));
+        }
+
+        // the rest of the answers have to agree with the new one. we don't overrule anything else the expert told us, they can adjust that one as well.
+        final RoaringBitmap answersBelow = RoaringBitmap.and(lattice.attributeSlices.downSet(nodeID), answeredNodes);
+        answersBelow.forEach((final int below) -> {
+            if (below != nodeID && state.floor(below) > classification) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Node %d was answered %d, which is above the new classification %d of node %d.", below, state.floor(below), classification, nodeID));
+            }
+        });
+        final RoaringBitmap answersAbove = RoaringBitmap.and(lattice.attributeSlices.upSet(nodeID), answeredNodes);
+        answersAbove.forEach((final int above) -> {
+            if (above != nodeID && !isImpossible(above) && state.floor(above) < classification) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Node %d was answered %d, which is below the new classification %d of node %d.", above, state.floor(above), classification, nodeID));
+            }
+        });
+
+        final Adjustment adjustment = new Adjustment();
+        answeredNodes.add(nodeID);
+        setBounds(nodeID, classification, classification, true, adjustment);
+        recomputeCones(RoaringBitmap.bitmapOf(nodeID), adjustment);
+        return finish(adjustment);
+    }
+
+    // takes back the answer to this node. it gets whatever bounds the other answers leave it with, which may not pin it down anymore.
+    Adjustment retract(final Node node) {
+        final int nodeID = node.nodeID;
+        if (!answeredNodes.contains(nodeID)) {
+            throw new IllegalStateException(String.format("Node %d was never answered, so there is nothing to take back.", nodeID));
+        }
+
+        final Adjustment adjustment = new Adjustment();
+        answeredNodes.remove(nodeID);
+        recomputeCones(RoaringBitmap.bitmapOf(nodeID), adjustment);
+        return finish(adjustment);
+    }
+
+    // this node can't exist, so neither can anything above it, the same as markImpossibleNodes. any answers up there are dropped.
+    Adjustment markInfeasible(final Node node) {
+        final RoaringBitmap nowImpossible = lattice.attributeSlices.upSet(node.nodeID);
+        final RoaringBitmap answersDropped = RoaringBitmap.and(nowImpossible, answeredNodes);
+        answeredNodes.andNot(nowImpossible);
+
+        final Adjustment adjustment = new Adjustment();
+        nowImpossible.forEach((final int nodeID) -> {
+            if (!isImpossible(nodeID)) {
+                setBounds(nodeID, Node.IMPOSSIBLE_CLASSIFICATION, state.ceiling(nodeID), true, adjustment);
+            }
+        });
+        // the floors above the dropped answers are all impossible now, so it's only the ceilings below them which need redoing.
+        recomputeCones(answersDropped, adjustment);
+        return finish(adjustment);
+    }
+
+    private Adjustment finish(final Adjustment adjustment) {
+        lattice.refreshIndexes(adjustment.nodesAdjusted(), adjustment.nodesAdjusted());
+        return adjustment;
+    }
+
+    // works the bounds out again in the up and down cones of the answers which changed, from the answers left.
+    private void recomputeCones(final RoaringBitmap changedAnswers, final Adjustment adjustment) {
+        final RoaringBitmap upCone = new RoaringBitmap();
+        final RoaringBitmap downCone = new RoaringBitmap();
+        changedAnswers.forEach((final int nodeID) -> {
+            upCone.or(lattice.attributeSlices.upSet(nodeID));
+            downCone.or(lattice.attributeSlices.downSet(nodeID));
+        });
+
+        // floors go in ID order, so all of a node's down neighbors inside the cone are done before it. the ones outside didn't move.
+        final Map<Integer, Integer> floorsPassedThrough = new HashMap<>();
+        upCone.forEach((final int nodeID) -> {
+            if (answeredNodes.contains(nodeID) || isImpossible(nodeID))
+                return;
+            final int floor = floorFromBelow(nodeID, floorsPassedThrough);
+            setBounds(nodeID, floor, state.ceiling(nodeID), floor == state.ceiling(nodeID), adjustment);
+        });
+
+        // and ceilings the other way round.
+        final Map<Integer, Integer> ceilingsPassedThrough = new HashMap<>();
+        final int[] downConeIDs = downCone.toArray();
+        for (int i = downConeIDs.length - 1; i >= 0; i--) {
+            final int nodeID = downConeIDs[i];
+            if (answeredNodes.contains(nodeID) || isImpossible(nodeID))
+                continue;
+            final int ceiling = ceilingFromAbove(nodeID, ceilingsPassedThrough);
+            setBounds(nodeID, state.floor(nodeID), ceiling, state.floor(nodeID) == ceiling, adjustment);
+        }
+    }
+
+    // the max of the floors of our down neighbors. an impossible node has no floor of its own, but an impossible region can sit in
+    // between two nodes, so it hands on whatever reaches it from below. those are worked out the same way, once each.
+    private int floorFromBelow(final int nodeID, final Map<Integer, Integer> floorsPassedThrough) {
+        int floor = 0;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+            if (downNeighbor == Lattice.NO_NEIGHBOR)
+                continue;
+            floor = Math.max(floor, isImpossible(downNeighbor)
+                    ? passedThrough(downNeighbor, floorsPassedThrough, this::floorFromBelow)
+                    : state.floor(downNeighbor));
+        }
+        return floor;
+    }
+
+    private int ceilingFromAbove(final int nodeID, final Map<Integer, Integer> ceilingsPassedThrough) {
+        int ceiling = state.numClasses - 1;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int upNeighbor = lattice.upNeighborID(nodeID, attribute);
+            if (upNeighbor == Lattice.NO_NEIGHBOR)
+                continue;
+            ceiling = Math.min(ceiling, isImpossible(upNeighbor)
+                    ? passedThrough(upNeighbor, ceilingsPassedThrough, this::ceilingFromAbove)
+                    : state.ceiling(upNeighbor));
+        }
+        return ceiling;
+    }
+
+    private interface BoundFromNeighbors {
+        int of(int nodeID, Map<Integer, Integer> passedThrough);
+    }
+
+    // not computeIfAbsent, since working one out fills in the ones it passes through as well.
+    private static int passedThrough(final int nodeID, final Map<Integer, Integer> passedThrough, final BoundFromNeighbors bound) {
+        final Integer known = passedThrough.get(nodeID);
+        if (known != null)
+            return known;
+        final int value = bound.of(nodeID, passedThrough);
+        passedThrough.put(nodeID, value);
+        return value;
+    }
+
+    private void setBounds(final int nodeID, final int floor, final int ceiling, final boolean confirmed, final Adjustment adjustment) {
+        final int oldFloor = state.floor(nodeID);
+        if (oldFloor == floor && state.ceiling(nodeID) == ceiling && state.isConfirmed(nodeID) == confirmed)
+            return;
+
+        state.setFloor(nodeID, floor);
+        state.setCeiling(nodeID, ceiling);
+        state.setConfirmed(nodeID, confirmed);
+        adjustment.nodesAdjusted().add(nodeID);
+        if (oldFloor != floor) {
+            adjustment.nodesReclassified().add(nodeID);
+        }
+    }
+
+    private boolean isImpossible(final int nodeID) {
+        return state.floor(nodeID) == Node.IMPOSSIBLE_CLASSIFICATION;
+    }
+}
@@ -3,6 +3,8 @@ package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
 import io.github.ryan_glgr.hansel_grapher.datamanipulation.NormalizedDataset;
 import io.github.ryan_glgr.hansel_grapher.experimental.ExperimentalFunctionalities;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnit;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnitBorder;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnitIndex;
 import io.github.ryan_glgr.hansel_grapher.functionrules.Attribute;
 import io.github.ryan_glgr.hansel_grapher.functionrules.RuleCreation;
 import io.github.ryan_glgr.hansel_grapher.functionrules.RuleNode;
@@ -10,8 +12,10 @@ import io.github.ryan_glgr.hansel_grapher.helper.Util;
 import io.github.ryan_glgr.hansel_grapher.stats.InterviewStats;
 import io.github.ryan_glgr.hansel_grapher.stats.PermeationStats;
 import io.github.ryan_glgr.hansel_grapher.helper.BalanceRatio;
-import io.github.ryan_glgr.hansel_grapher.functionallogic.HanselChains;
-import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnitsFactory;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.HanselChainSet;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.ImpossibilityIndex;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeSnapshot;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
 import io.github.ryan_glgr.hansel_grapher.helper.NodeComparisons;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.PythonInterpreter;
@@ -28,27 +32,43 @@ import java.util.stream.Stream;
 public class Interview {
 
     private static final BalanceRatio DEFAULT_BALANCE_RATIO = BalanceRatio.SHANNON_ENTROPY_BALANCE_RATIO;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    // how many of the top ranked nodes the exact mode tries out each question.
+    private static final int EXACT_MINIMUM_CONFIRMED_SHORTLIST_SIZE = 16;
 
     // if we set this false, we are going to call upon some ML interviewer instead.
     public final MagicFunctionMode magicFunctionMode;
     public BalanceRatio balanceRatio;
+    public int batchSize = DEFAULT_BATCH_SIZE; // how many nodes the batched modes ask about per round.
 
     public InterviewStats interviewStats;
-    public final HashMap<Integer, Node> data;
-    public final HashMap<Integer, Node> allNodesToTheirIDsMap; // all the same nodes, but this way we can look up a node by it's ID as well.
-    public final ArrayList<ArrayList<Node>> hanselChains;
+    public final Lattice lattice; // every node, indexed by its ID. IDs are the mixed radix rank of the node's values.
+    public final HanselChainSet hanselChains;
     public Map<Integer, Set<LowUnit>> lowUnitsByClass;
     public RuleNode[] ruleTrees;
 
     // to be used if we are running gui mode. this allows us to tell the GUI when updates have happened.
     private LiveInterviewVisualizer liveInterviewVisualizer = null;
 
+    // every region of the lattice which can't exist. its nodes are marked impossible before we ask anything.
+    public final ImpossibilityIndex impossibilityIndex;
+
+    // the low units of what the interview has confirmed so far, kept up to date after every answer. null until it starts.
+    private LowUnitBorder lowUnitBorder = null;
+
+    // the low units we found, indexed for classifying points with them. made the first time it's needed, and again after an adjustment.
+    private LowUnitIndex lowUnitIndex = null;
+
+    // made once the interview is over, from the nodes we asked about. null until then.
+    private ExpertAdjustments expertAdjustments = null;
+
     public final int numClasses;
     public final String[] classificationNames;
     public final Attribute[] attributes;
     public final String[] attributeNames;
     public final Integer[] kVals;
     public final Map<Integer, Set<Node>> lowUnitsForEachClassification; // used for the magic function mode when we know what the low units are already, and we are trying to run the interview.
+    private final LowUnitIndex knownLowUnitIndex; // the same known low units, indexed so each question doesn't go through all of them.
 
     private final PythonInterpreter pythonInterpreter;
 
@@ -127,15 +147,24 @@ public class Interview {
                         attributeNames[index]))
                 .toArray(Attribute[]::new);
 
-        this.data = Node.makeNodes(kVals, numClasses);
-        this.allNodesToTheirIDsMap = new HashMap<>();
-        for (final Node node : data.values()) {
-            allNodesToTheirIDsMap.put(node.nodeID, node);
-        }
+        // the lattice structure and chains only depend on the k values, so they come from a snapshot if we've seen these k values before.
+        final LatticeSnapshot latticeSnapshot = LatticeSnapshot.loadOrBuild(kVals, numClasses);
+        this.lattice = latticeSnapshot.lattice;
+
+        this.lowUnitsForEachClassification = InterviewHelperFunctions.getKnownLowUnitsOfEachClassification(setOfLowUnitsByClassification, lattice);
+        this.knownLowUnitIndex = Objects.isNull(lowUnitsForEachClassification) ? null : LowUnitIndex.ofNodes(lowUnitsForEachClassification);
+        this.hanselChains = latticeSnapshot.hanselChains;
+        this.impossibilityIndex = ExperimentalFunctionalities.markImpossibleNodes(impossibleAttributeCombinations, lattice);
+    }
 
-        this.lowUnitsForEachClassification = InterviewHelperFunctions.getKnownLowUnitsOfEachClassification(setOfLowUnitsByClassification, data);
-        this.hanselChains = HanselChains.generateHanselChainSet(kVals, data);
-        ExperimentalFunctionalities.markImpossibleNodes(impossibleAttributeCombinations, new ArrayList<>(data.values()));
+    // marks another region as impossible, before the interview starts. unlike the combinations given to the constructor, this can be
+    // any box, like everything <= some values, for combinations which are infeasible for being too low.
+    public void addImpossibleRegion(final ImpossibilityIndex.Box box) {
+        if (Objects.nonNull(interviewStats)) {
+            throw new IllegalStateException("Impossible regions have to be added before the interview. Use adjustClassification afterwards.");
+        }
+        impossibilityIndex.add(box);
+        impossibilityIndex.markImpossibleNodes(box, lattice);
     }
 
     public void beginInterview(final InterviewMode interviewMode) {
@@ -145,18 +174,100 @@ public class Interview {
         this.interviewStats = conductInterview(interviewMode);
 
         System.out.println("Interview Complete. Creating Rule Trees...");
-        // once the interview is conducted, we are in the Monotone ordinal function recreation stage:
-        this.lowUnitsByClass = LowUnitsFactory.findPrunedLowUnits(hanselChains);
-
-        this.ruleTrees = RuleCreation.createRuleTrees(lowUnitsByClass, this.kVals.length);
+        // once the interview is conducted, we are in the Monotone ordinal function recreation stage. the border has been keeping
+        // up the whole time, so the low units are already there. anything left unconfirmed goes in by its floor, the same as
+        // LowUnitsFactory.findPrunedLowUnits takes it, so from here on the border has every node, and can follow the adjustments.
+        lowUnitBorder.update(RoaringBitmap.bitmapOfRange(0, lattice.size()));
+        this.lowUnitsByClass = lowUnitBorder.finalLowUnits();
+
+        this.ruleTrees = RuleCreation.createRuleTrees(lowUnitsByClass, numClasses, this.kVals.length);
+        this.expertAdjustments = new ExpertAdjustments(lattice, interviewStats.nodesAsked);
         inputScanner.close();
     }
 
+    // the low units as they stand right now. during the interview, these are from the nodes confirmed so far, so they can be shown
+    // while it's going. after it, they're the final ones, with any adjustments.
+    public Map<Integer, Set<LowUnit>> getCurrentLowUnits() {
+        if (Objects.nonNull(lowUnitsByClass))
+            return lowUnitsByClass;
+        if (Objects.isNull(lowUnitBorder))
+            return new HashMap<>();
+        return lowUnitBorder.lowUnits();
+    }
+
+    // the same, as rule trees. mid interview, a class nothing has been confirmed as yet has no tree.
+    public RuleNode[] getCurrentRuleTrees() {
+        if (Objects.nonNull(ruleTrees))
+            return ruleTrees;
+        return RuleCreation.createRuleTrees(getCurrentLowUnits(), numClasses, kVals.length);
+    }
+
+    // the class the function we found gives these values: the highest class with a low unit under them. the bottom is class 0.
+    public int classify(final Integer[] values) {
+        if (Objects.isNull(lowUnitsByClass)) {
+            throw new IllegalStateException("The interview has to be finished before its low units can classify anything.");
+        }
+        if (Objects.isNull(lowUnitIndex)) {
+            lowUnitIndex = new LowUnitIndex(lowUnitsByClass);
+        }
+        return Math.max(0, lowUnitIndex.highestClassOf(values));
+    }
+
+    public void setLiveInterviewVisualizer(final LiveInterviewVisualizer liveInterviewVisualizer) {
+        this.liveInterviewVisualizer = liveInterviewVisualizer;
+    }
+
+    // post interview expert adjustment. gives the node this classification, or marks it (and everything above it) infeasible if given
+    // Node.IMPOSSIBLE_CLASSIFICATION. only the nodes above and below it are worked out again, from the rest of the answers, and only the
+    // low units and rule trees of the classes which moved are redone. returns every node which changed.
+    public RoaringBitmap adjustClassification(final Node node, final int classification) {
+        final ExpertAdjustments adjustments = getExpertAdjustments();
+        if (classification == Node.IMPOSSIBLE_CLASSIFICATION) {
+            impossibilityIndex.add(ImpossibilityIndex.Box.upSetOf(node.values, kVals));
+            return applyAdjustment(adjustments.markInfeasible(node));
+        }
+        return applyAdjustment(adjustments.override(node, classification));
+    }
+
+    // takes back our answer for this node, as if we had never asked. it, and anything it was holding in place, may be left unconfirmed.
+    public RoaringBitmap retractClassification(final Node node) {
+        return applyAdjustment(getExpertAdjustments().retract(node));
+    }
+
+    private ExpertAdjustments getExpertAdjustments() {
+        if (expertAdjustments == null) {
+            throw new IllegalStateException("The interview has to be finished before it can be adjusted.");
+        }
+        return expertAdjustments;
+    }
+
+    private RoaringBitmap applyAdjustment(final ExpertAdjustments.Adjustment adjustment) {
+        final Set<Integer> classesChanged = lowUnitBorder.reclassify(adjustment.nodesReclassified());
+        if (!classesChanged.isEmpty()) {
+            lowUnitsByClass.keySet().removeAll(classesChanged);
+            lowUnitsByClass.putAll(lowUnitBorder.lowUnits(classesChanged));
+            lowUnitIndex = null;
+            for (final int classification : classesChanged) {
+                if (classification >= 0 && classification < numClasses) {
+                    ruleTrees[classification] = RuleCreation.createRuleTree(lowUnitsByClass.get(classification), kVals.length);
+                }
+            }
+        }
+
+        if (Objects.nonNull(liveInterviewVisualizer)) {
+            liveInterviewVisualizer.notifyNodesAdjusted(adjustment.nodesAdjusted());
+        }
+        return adjustment.nodesAdjusted();
+    }
+
     // mega function which determines how we are going to ask questions.
     // mode determines the question asking heuristics. umbrellaBased determines if we sort by umbrella metrics.
     private InterviewStats conductInterview(final InterviewMode mode) {
 
-        final ArrayList<Node> allNodes = new ArrayList<>(data.values());
+        // the impossible nodes are all marked by now, so the border starts from those.
+        this.lowUnitBorder = new LowUnitBorder(lattice);
+
+        final ArrayList<Node> allNodes = new ArrayList<>(lattice.getNodes());
         final InterviewStats stats = switch(mode) {
 
             case HIGHEST_TOTAL_UMBRELLA_SORT -> {
@@ -252,6 +363,41 @@ public class Interview {
                 yield binarySearchChunksInterview(hanselChains, true, NodeComparisons.BEST_BALANCE_RATIO);
             }
 
+            case MULTI_CHAIN_BINARY_SEARCH -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, false, null);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_SMALLEST_DIFFERENCE -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_HIGHEST_TOTAL_UMBRELLA_SORT -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.HIGHEST_TOTAL_UMBRELLA);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BEST_MIN_CONFIRMED -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.BY_MIN_CLASSIFICATIONS);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_UNITY -> {
+                balanceRatio = BalanceRatio.UNITY_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.BEST_BALANCE_RATIO);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_SHANNON_ENTROPY -> {
+                balanceRatio = BalanceRatio.SHANNON_ENTROPY_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.BEST_BALANCE_RATIO);
+            }
+
+            case MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_QUADRATIC -> {
+                balanceRatio = BalanceRatio.QUADRATIC_BALANCE_RATIO;
+                yield multiChainBinarySearchInterview(hanselChains, true, NodeComparisons.BEST_BALANCE_RATIO);
+            }
+
             case NONBINARY_SEARCH_CHAINS -> {
                 balanceRatio = DEFAULT_BALANCE_RATIO;
                 yield nonBinarySearchHCsInterview(hanselChains, false, null);
@@ -289,13 +435,48 @@ public class Interview {
 
             case BINARY_SEARCH_LONGEST_STRING_OF_EXPANSIONS -> {
                 balanceRatio = DEFAULT_BALANCE_RATIO;
-                yield binarySearchStringOfExpansionsInterview(allNodes);
+                yield binarySearchStringOfExpansionsInterview();
             }
 
             case BEST_MINIMUM_CONFIRMED -> {
                 balanceRatio = DEFAULT_BALANCE_RATIO;
                 yield bestMinConfirmedInterview(allNodes);
             }
+
+            case EXACT_MINIMUM_CONFIRMED -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield exactMinConfirmedInterview(allNodes);
+            }
+
+            case BATCHED_ANTICHAIN_BEST_MINIMUM_CONFIRMED -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.BY_MIN_CLASSIFICATIONS);
+            }
+
+            case BATCHED_ANTICHAIN_HIGHEST_TOTAL_UMBRELLA_SORT -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.HIGHEST_TOTAL_UMBRELLA);
+            }
+
+            case BATCHED_ANTICHAIN_SMALLEST_DIFFERENCE_UMBRELLA_SORT -> {
+                balanceRatio = DEFAULT_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
+            }
+
+            case BATCHED_ANTICHAIN_BALANCE_RATIO_UNITY -> {
+                balanceRatio = BalanceRatio.UNITY_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.BEST_BALANCE_RATIO);
+            }
+
+            case BATCHED_ANTICHAIN_BALANCE_RATIO_SHANNON_ENTROPY -> {
+                balanceRatio = BalanceRatio.SHANNON_ENTROPY_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.BEST_BALANCE_RATIO);
+            }
+
+            case BATCHED_ANTICHAIN_BALANCE_RATIO_QUADRATIC -> {
+                balanceRatio = BalanceRatio.QUADRATIC_BALANCE_RATIO;
+                yield batchedAntichainInterview(allNodes, NodeComparisons.BEST_BALANCE_RATIO);
+            }
         };
 
         if (pythonInterpreter != null) {
@@ -307,7 +488,7 @@ public class Interview {
         }
         return new InterviewStats(kVals,
             hanselChains.size(),
-            data.size(),
+            lattice.size(),
             mode,
             magicFunctionMode,
             stats.nodesAsked,
@@ -317,67 +498,152 @@ public class Interview {
     private int askQuestion(final Node n) {
         return switch (magicFunctionMode) {
             case KVAL_TIMES_WEIGHTS_MODE -> QuestionHelper.linearFunctionQuestion(n, attributes, numClasses);
-            case KNOWN_LOW_UNITS_MODE -> QuestionHelper.knownLowUnitsQuestion(n, lowUnitsForEachClassification);
+            case KNOWN_LOW_UNITS_MODE -> QuestionHelper.knownLowUnitsQuestion(n, knownLowUnitIndex);
             case EXPERT_MODE -> QuestionHelper.questionExpert(n, inputScanner);
             case MACHINE_LEARNING -> QuestionHelper.queryPython(n, pythonInterpreter);
         };
     }
 
+    // the same as askQuestion, for a whole batch. the ML oracle gets them all in one call, everyone else is just asked one at a time.
+    private List<Integer> askQuestions(final List<Node> nodes) {
+        if (magicFunctionMode == MagicFunctionMode.MACHINE_LEARNING) {
+            return QuestionHelper.queryPythonBatch(nodes, pythonInterpreter);
+        }
+        return nodes.stream()
+            .map(this::askQuestion)
+            .toList();
+    }
+
+    // gives this node its answer, and keeps the low unit border up with whatever that confirmed. every real answer goes through here,
+    // or through permeated if it was already worked out while speculating. the dry run ones don't.
+    private PermeationStats permeate(final Node node, final int classification) {
+        return permeated(node.permeateClassification(classification));
+    }
+
+    // keeps the low unit border up with an answer which is already in the lattice.
+    private PermeationStats permeated(final PermeationStats stats) {
+        lowUnitBorder.update(stats.nodesConfirmed);
+        return stats;
+    }
+
+    // a whole set of answers at once, like a replayed session or labels we already know, applied the way Lattice.permeateClassifications
+    // does it. while the interview is going, answers from outside have to come in here rather than straight to the lattice, so the low
+    // unit border hears about them. once it's over they're adjustments, and go through adjustClassification instead.
+    public PermeationStats permeateClassifications(final int[] nodeIDs, final int[] classifications) {
+        if (Objects.nonNull(lowUnitsByClass)) {
+            throw new IllegalStateException("The interview is finished, answers after it have to be given as adjustments.");
+        }
+        final PermeationStats stats = lattice.permeateClassifications(nodeIDs, classifications);
+        if (Objects.nonNull(lowUnitBorder)) {
+            lowUnitBorder.update(stats.nodesConfirmed);
+        }
+        if (Objects.nonNull(liveInterviewVisualizer)) {
+            liveInterviewVisualizer.notifyClassificationsChanged();
+        }
+        return stats;
+    }
+
     // Sort nodes based on umbrella strategy
     // umbrella strategy considers how many nodes are reachable underneath/above a given node. for example:
     private InterviewStats umbrellaSortInterview(final ArrayList<Node> allNodes,
                                                  final Comparator<Node> umbrellaSortingStrategy) {
 
+        // the smallest difference is the one strategy where we want the min. the queue ranks it that way round already.
+        final NodeRankingQueue nodesToAsk = new NodeRankingQueue(allNodes, umbrellaSortingStrategy, this.balanceRatio, this.numClasses, lattice);
+        return rankingQueueInterview(nodesToAsk);
+    }
+
+    // asks about the best node in the queue, one at a time, until everything is confirmed.
+    private InterviewStats rankingQueueInterview(final NodeRankingQueue nodesToAsk) {
+
         final List<Node> nodesAsked = new ArrayList<>();
         final List<PermeationStats> permeationStatsForEachNodeAsked = new ArrayList<>();
 
-        // Instead of sorting every time, just find the best node according to the chosen comparator
-        final boolean useMin = (umbrellaSortingStrategy == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
-
-        ArrayList<Node> nodesToAsk = new ArrayList<>(allNodes);
-        // --- Main loop ---
-        while (!nodesToAsk.isEmpty()) {
+        // an expert takes long enough to answer that we can work out the next question for each answer they might give in the meantime.
+        final SpeculativeQuestions speculation = magicFunctionMode == MagicFunctionMode.EXPERT_MODE
+            ? new SpeculativeQuestions(nodesToAsk, lattice)
+            : null;
+        try {
+            // take the front guy (the chosen one)
+            Node n = nodesToAsk.isEmpty() ? null : nodesToAsk.poll();
+            // --- Main loop ---
+            while (n != null) {
+
+                // get our value either from expert or ML
+                final int lowestAnswer = n.getClassification();
+                final int classification;
+                if (speculation != null) {
+                    final int highestAnswer = n.getMaxPossibleValue();
+                    speculation.speculateOn(n, lowestAnswer, highestAnswer);
+                    classification = QuestionHelper.questionExpert(n, lowestAnswer, highestAnswer, inputScanner);
+                    speculation.stop();
+                }
+                else
+                    classification = askQuestion(n);
+
+                // this sets all the upper bounds below, and all the lower bounds above. if the answer was already tried out while
+                // the expert thought about it, what that worked out is just written in.
+                final PermeationStats speculated = speculation != null
+                    ? speculation.commit(lowestAnswer, classification)
+                    : null;
+                final PermeationStats stats = speculated != null
+                    ? permeated(speculated)
+                    : permeate(n, classification);
+                if (Objects.nonNull(liveInterviewVisualizer)) {
+                    liveInterviewVisualizer.notifyClassificationsChanged();
+                }
+                nodesAsked.add(n);
+                permeationStatsForEachNodeAsked.add(stats);
+
+                // drop the confirmed nodes, and re-rank only the ones this question could have moved.
+                if (speculation != null) {
+                    n = speculation.nextQuestion(lowestAnswer, classification, stats);
+                } else {
+                    nodesToAsk.update(stats);
+                    n = nodesToAsk.isEmpty() ? null : nodesToAsk.poll();
+                }
+            }
+        } finally {
+            if (speculation != null) {
+                speculation.close();
+            }
+        }
+        return new InterviewStats(nodesAsked, permeationStatsForEachNodeAsked);
+    }
 
-            final PermeationStats lastUpdate = permeationStatsForEachNodeAsked.isEmpty()
-                    ? new PermeationStats(0, 0, 0, new RoaringBitmap(), new RoaringBitmap())
-                    : permeationStatsForEachNodeAsked.getLast();
+    // like the umbrella sort, but every round takes up to batchSize of the best unconfirmed nodes which are all incomparable to each other.
+    // nothing in the batch is above or below anything else in it, so no answer can confirm another, and they can all be asked at once.
+    private InterviewStats batchedAntichainInterview(final ArrayList<Node> allNodes,
+                                                     final Comparator<Node> umbrellaSortingStrategy) {
 
-            Node.updateAllNodeRankings(nodesToAsk, this.balanceRatio, this.numClasses, lastUpdate, allNodesToTheirIDsMap);
+        final List<Node> nodesAsked = new ArrayList<>();
+        final List<PermeationStats> permeationStatsForEachNodeAsked = new ArrayList<>();
 
-            final Node n = useMin
-                ? Collections.min(nodesToAsk, umbrellaSortingStrategy)
-                : Collections.max(nodesToAsk, umbrellaSortingStrategy);
+        final NodeRankingQueue nodesToAsk = new NodeRankingQueue(allNodes, umbrellaSortingStrategy, this.balanceRatio, this.numClasses, lattice);
+        while (!nodesToAsk.isEmpty()) {
 
-            // remove the front guy (the chosen one)
-            nodesToAsk.remove(n);
+            final List<Node> batch = nodesToAsk.pollAntichain(batchSize);
+            final List<Integer> classifications = askQuestions(batch);
 
-            // no need to ask about a confirmed node.
-            if (n.classificationConfirmed) {
-                continue;
+            // the batch is an antichain, so each answer only moves nodes outside of it. order doesn't matter.
+            final List<PermeationStats> batchStats = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                final PermeationStats stats = permeate(batch.get(i), classifications.get(i));
+                nodesAsked.add(batch.get(i));
+                permeationStatsForEachNodeAsked.add(stats);
+                batchStats.add(stats);
             }
-
-            // get our value either from expert or ML
-            final int classification = askQuestion(n);
-
-            // this sets all the upper bounds below, and all the lower bounds above.
-            final PermeationStats stats = n.permeateClassification(classification);
             if (Objects.nonNull(liveInterviewVisualizer)) {
                 liveInterviewVisualizer.notifyClassificationsChanged();
             }
-            nodesAsked.add(n);
-            permeationStatsForEachNodeAsked.add(stats);
 
-            final RoaringBitmap nodesConfirmed = stats.nodesConfirmed;
-            // filter out confirmed nodes and continue
-            nodesToAsk = nodesToAsk.stream()
-                .filter(node -> !nodesConfirmed.contains(node.nodeID))
-                .collect(Collectors.toCollection(ArrayList::new));
+            nodesToAsk.update(batchStats);
         }
         return new InterviewStats(nodesAsked, permeationStatsForEachNodeAsked);
     }
 
     // function where we search through chains, which get recursively split into chunks.
-    private InterviewStats binarySearchChunksInterview(final ArrayList<ArrayList<Node>> hanselChainSet,
+    private InterviewStats binarySearchChunksInterview(final HanselChainSet hanselChainSet,
                                                        final boolean completingTheSquareTechnique,
                                                        final Comparator<Node> choosingAlternateMiddleNodeTechnique) {
 
@@ -386,14 +652,13 @@ public class Interview {
 
         final boolean useMaxComparison = (choosingAlternateMiddleNodeTechnique == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
 
-        // we have to keep a list of chunks of the chain which are not confirmed. basically we chop the chain
-        // each time that we confirm a node. we could confirm a bunch with one question, and we have to investigate all the
-        // chains/chunks to determine that. a chain
-        ArrayList<ArrayList<Node>> chunks = new ArrayList<>(hanselChainSet);
+        // we have to keep track of the chunks of the chains which are not confirmed. basically we chop the chain
+        // each time that we confirm a node. we could confirm a bunch with one question, but only the chunks holding those nodes get cut.
+        final ChunkIndex chunks = ChunkIndex.overChains(hanselChainSet, lattice.state);
         while (!chunks.isEmpty()){
 
             // get our biggest chunk
-            final ArrayList<Node> chunkToQuestion = Collections.max(chunks, Comparator.comparingInt(List::size));
+            final List<Node> chunkToQuestion = chunks.longest();
 
             // get the middle node
             final int middleIndex = chunkToQuestion.size() / 2;
@@ -418,23 +683,98 @@ public class Interview {
             // ask the expert or ML
             final int classification = askQuestion(nodeToQuestion);
 
-            final PermeationStats permStats = nodeToQuestion.permeateClassification(classification);
+            final PermeationStats permStats = permeate(nodeToQuestion, classification);
             if (Objects.nonNull(liveInterviewVisualizer)) {
                 liveInterviewVisualizer.notifyClassificationsChanged();
             }
             questionsAsked.add(nodeToQuestion);
             permeationStats.add(permStats);
 
-            // for each chunk we have remaining of each chain, we are going to chop them up, splitting on parts where they are confirmed.
-            chunks = chunks.parallelStream()
-                .flatMap(chunk -> InterviewHelperFunctions.splitChunkIntoPiecesHelper(chunk).stream())
-                .collect(Collectors.toCollection(ArrayList::new));
+            // chop up the chunks which had nodes confirmed, splitting on parts where they are confirmed.
+            chunks.refresh(permStats.nodesConfirmed);
+        }
+
+        return new InterviewStats(questionsAsked, permeationStats);
+    }
+
+    // binary searches every chain at the same time. each round, the longest open chunk of every chain gives up its middle node (or a better
+    // square completion), and they are all asked about in one batch. then all the answers get permeated, and only the chunks holding
+    // newly confirmed nodes get cut.
+    private InterviewStats multiChainBinarySearchInterview(final HanselChainSet hanselChainSet,
+                                                           final boolean completingTheSquareTechnique,
+                                                           final Comparator<Node> choosingAlternateMiddleNodeTechnique) {
+
+        final List<Node> questionsAsked = new ArrayList<>();
+        final List<PermeationStats> permeationStats = new ArrayList<>();
+
+        final boolean useMaxComparison = (choosingAlternateMiddleNodeTechnique == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
+
+        final ChunkIndex chunks = ChunkIndex.overChains(hanselChainSet, lattice.state);
+        PermeationStats lastRound = new PermeationStats(0, 0, 0, new RoaringBitmap(), new RoaringBitmap());
+        while (!chunks.isEmpty()) {
+
+            // one node per chain, up to batchSize of them. before the chains are first split, a chunk can still hold confirmed
+            // (impossible) nodes, and a square completion can step off its chain, so two chains could pick the same node. no need to
+            // ask about those. the nodes can also be above or below each other, and then one answer may pin the other down, so only
+            // an antichain of them is asked about. the rest are left for when their chunk comes up again, if they're still open then.
+            // like pollAntichain, we settle for a smaller round after passing over a few nodes per slot.
+            final int dimension = lattice.dimension();
+            final int[] takenValues = new int[batchSize * dimension];
+            final int[] candidateValues = new int[dimension];
+            final List<Node> batch = new ArrayList<>(batchSize);
+            int skipped = 0;
+            for (final List<Node> chunkToQuestion : chunks.longestOfEachChain()) {
+                if (batch.size() == batchSize || skipped == batchSize * NodeRankingQueue.SKIPS_PER_BATCH_SLOT)
+                    break;
+
+                final int middleIndex = chunkToQuestion.size() / 2;
+                final Node node;
+                if (completingTheSquareTechnique) {
+                    node = getBestSquareCompletion(chunkToQuestion,
+                            middleIndex,
+                            choosingAlternateMiddleNodeTechnique,
+                            useMaxComparison,
+                            lastRound);
+                    // the umbrella index only has to be brought up to date with the last round once.
+                    lastRound = new PermeationStats(0, 0, 0, new RoaringBitmap(), new RoaringBitmap());
+                }
+                else
+                    node = chunkToQuestion.get(middleIndex);
+
+                for (int attribute = 0; attribute < dimension; attribute++) {
+                    candidateValues[attribute] = lattice.valueOf(node.nodeID, attribute);
+                }
+                if (node.isClassificationConfirmed() || NodeRankingQueue.isComparableToAny(candidateValues, takenValues, batch.size())) {
+                    skipped++;
+                    continue;
+                }
+                System.arraycopy(candidateValues, 0, takenValues, batch.size() * dimension, dimension);
+                batch.add(node);
+            }
+            final List<Integer> classifications = askQuestions(batch);
+
+            final RoaringBitmap nodesConfirmedThisRound = new RoaringBitmap();
+            final RoaringBitmap nodesWithBoundChangesThisRound = new RoaringBitmap();
+            for (int i = 0; i < batch.size(); i++) {
+                final Node nodeToQuestion = batch.get(i);
+                final PermeationStats permStats = permeate(nodeToQuestion, classifications.get(i));
+                questionsAsked.add(nodeToQuestion);
+                permeationStats.add(permStats);
+                nodesConfirmedThisRound.or(permStats.nodesConfirmed);
+                nodesWithBoundChangesThisRound.or(permStats.nodesWithBoundChanges);
+            }
+            if (Objects.nonNull(liveInterviewVisualizer)) {
+                liveInterviewVisualizer.notifyClassificationsChanged();
+            }
+
+            lastRound = new PermeationStats(0, 0, 0, nodesConfirmedThisRound, nodesWithBoundChangesThisRound);
+            chunks.refresh(nodesConfirmedThisRound);
         }
 
         return new InterviewStats(questionsAsked, permeationStats);
     }
 
-    private InterviewStats traditionalBinarySearchInterview(final ArrayList<ArrayList<Node>> hanselChainSet,
+    private InterviewStats traditionalBinarySearchInterview(final HanselChainSet hanselChainSet,
                                                             final boolean completingTheSquareTechnique,
                                                             final Comparator<Node> choosingAlternateMiddleNodeTechnique) {
 
@@ -443,36 +783,20 @@ public class Interview {
 
         final boolean useMaxComparison = (choosingAlternateMiddleNodeTechnique == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
 
-        // we have to keep a list of chunks of the chain which are not confirmed. basically we chop the chain
-        // each time that we confirm a node. we could confirm a bunch with one question, and we have to investigate all the
-        // chains/chunks to determine that. a chain
-        ArrayList<ArrayList<Node>> chunks = new ArrayList<>(hanselChainSet);
+        // we have to keep track of the chunks of the chains which are not confirmed. basically we chop the chain
+        // each time that we confirm a node. we could confirm a bunch with one question, but only the chunks holding those nodes get cut.
+        final ChunkIndex chunks = ChunkIndex.overChains(hanselChainSet, lattice.state);
         while (!chunks.isEmpty()){
 
-            // get our biggest chunk (piece of Hansel chain)
-            final ArrayList<Node> chunkToBinarySearch = Collections.max(chunks, Comparator.comparingInt(List::size));
-
-            // we have to keep track of our list of chains individually. so they don't get chopped up until it is time for us to query a particular chain.
-            // one particular chain may get chopped into many chunks, each of which you would want to binary search.
-            // this starts as a list of list of nodes, but just one list. then it may blow up into several pieces.
-            ArrayList<ArrayList<Node>> chainToQuestion = new ArrayList<>();
-            chainToQuestion.add(new ArrayList<>(chunkToBinarySearch));
+            // we have to keep track of the pieces of our biggest chunk (piece of Hansel chain) separately. so we finish this one before
+            // moving on to any other. it may get chopped into many pieces, each of which you would want to binary search.
+            final ChunkIndex chainToQuestion = chunks.piecesOfLongest();
 
             // while we still have remaining pieces of this chain:
             while(!chainToQuestion.isEmpty()) {
 
-                // for each chunk we have remaining of each chain, we are going to chop them up, splitting on parts where they are confirmed.
-                chainToQuestion = chainToQuestion.parallelStream()
-                        .flatMap(chunk -> InterviewHelperFunctions.splitChunkIntoPiecesHelper(chunk)
-                                .stream())
-                        .collect(Collectors.toCollection(ArrayList::new));
-
-                // chain is done.
-                if (chainToQuestion.isEmpty())
-                    break;
-
                 // get the longest chunk of this HC
-                final ArrayList<Node> longestPartOfThisChainNotYetConfirmed = Collections.max(chainToQuestion, Comparator.comparingInt(List::size));
+                final List<Node> longestPartOfThisChainNotYetConfirmed = chainToQuestion.longest();
 
                 // get the middle node
                 final int middleIndex = longestPartOfThisChainNotYetConfirmed.size() / 2;
@@ -497,18 +821,17 @@ public class Interview {
 
                 // ask the expert or ML
                 final int classification = askQuestion(nodeToQuestion);
-                final PermeationStats permStats = nodeToQuestion.permeateClassification(classification);
+                final PermeationStats permStats = permeate(nodeToQuestion, classification);
                 if (Objects.nonNull(liveInterviewVisualizer)) {
                     liveInterviewVisualizer.notifyClassificationsChanged();
                 }
                 questionsAsked.add(nodeToQuestion);
                 permeationStats.add(permStats);
-            }
 
-            // update all our HCs with the results now that we are done with that chain.
-            chunks = chunks.parallelStream()
-                    .flatMap(chunk -> InterviewHelperFunctions.splitChunkIntoPiecesHelper(chunk).stream())
-                    .collect(Collectors.toCollection(ArrayList::new));
+                // the pieces of this chain, and every other chain this touched, get chopped up where they are confirmed.
+                chainToQuestion.refresh(permStats.nodesConfirmed);
+                chunks.refresh(permStats.nodesConfirmed);
+            }
         }
 
         return new InterviewStats(questionsAsked, permeationStats);
@@ -518,7 +841,7 @@ public class Interview {
     }
 
     private Node getBestSquareCompletion(
-            final ArrayList<Node> chunkToQuestion,
+            final List<Node> chunkToQuestion,
             final int middleIndex,
             final Comparator<Node> choosingAlternateMiddleNodeTechnique,
             final boolean useMaxComparison,
@@ -538,34 +861,38 @@ public class Interview {
         final ArrayList<Node> intersection;
         if (aboveNode != null && belowNode != null) {
             // filter nulls from expansions
-            final Set<Node> upSet = Arrays.stream(belowNode.upExpansions)
+            final Set<Node> upSet = Arrays.stream(belowNode.getUpExpansions())
                                     .filter(Objects::nonNull)
-                                    .filter(n -> !n.classificationConfirmed)
+                                    .filter(n -> !n.isClassificationConfirmed())
                                     .collect(Collectors.toCollection(HashSet::new));
 
-            intersection = Arrays.stream(aboveNode.downExpansions)
+            intersection = Arrays.stream(aboveNode.getDownExpansions())
                                 .filter(Objects::nonNull)
-                                .filter(n -> !n.classificationConfirmed)
+                                .filter(n -> !n.isClassificationConfirmed())
                                 .filter(upSet::contains)
                                 .collect(Collectors.toCollection(ArrayList::new));
         } 
         else if (aboveNode != null) {
-            intersection = Arrays.stream(aboveNode.downExpansions)
+            intersection = Arrays.stream(aboveNode.getDownExpansions())
                                 .filter(Objects::nonNull)
-                                .filter(n -> !n.classificationConfirmed)
+                                .filter(n -> !n.isClassificationConfirmed())
                                 .collect(Collectors.toCollection(ArrayList::new));
         } 
         else if (belowNode != null) {
-            intersection = Arrays.stream(belowNode.upExpansions)
+            intersection = Arrays.stream(belowNode.getUpExpansions())
                                 .filter(Objects::nonNull)
-                                .filter(n -> !n.classificationConfirmed)
+                                .filter(n -> !n.isClassificationConfirmed())
                                 .collect(Collectors.toCollection(ArrayList::new));
         } 
         else {
             return middleNode;
         }
+        // a chain which hasn't been split yet can have an impossible middle node, with nothing unconfirmed around it to pick instead.
+        if (intersection.isEmpty()) {
+            return middleNode;
+        }
         // THIS IS VERY IMPORTANT! WE NEED TO UPDATE THE NODE RANKINGS FOR THESE NODES!!!!
-        Node.updateAllNodeRankings(intersection, this.balanceRatio, this.numClasses, lastUpdate, allNodesToTheirIDsMap);
+        Node.updateAllNodeRankings(intersection, this.balanceRatio, this.numClasses, lastUpdate, lattice);
 
         // safe min/max selection
         Node selectedNode = useMaxComparison
@@ -577,16 +904,16 @@ public class Interview {
         // which is better to ask about
         if(selectedNode.equals(middleNode) && aboveNode != null && belowNode != null) {
             final ArrayList<Node> union = Stream.concat(
-                    Arrays.stream(aboveNode.downExpansions), Arrays.stream(belowNode.upExpansions))
+                    Arrays.stream(aboveNode.getDownExpansions()), Arrays.stream(belowNode.getUpExpansions()))
                     .filter(Objects::nonNull)
-                    .filter(n -> !n.classificationConfirmed)
+                    .filter(n -> !n.isClassificationConfirmed())
                     .distinct()
                     .filter(Predicate.not(intersection::contains))
                     .collect(Collectors.toCollection(ArrayList::new));
             union.add(selectedNode);
 
             // AGAIN IMPORTANT TO UPDATE THE RANKINGS BEFORE WE COMPARE!!!
-            Node.updateAllNodeRankings(union, this.balanceRatio, this.numClasses, lastUpdate, allNodesToTheirIDsMap);
+            Node.updateAllNodeRankings(union, this.balanceRatio, this.numClasses, lastUpdate, lattice);
             selectedNode = useMaxComparison
                 ? Collections.max(union, choosingAlternateMiddleNodeTechnique)
                 : Collections.min(union, choosingAlternateMiddleNodeTechnique);
@@ -595,46 +922,37 @@ public class Interview {
         return selectedNode;
     }
 
-    private InterviewStats binarySearchStringOfExpansionsInterview(final ArrayList<Node> allNodes) {
+    private InterviewStats binarySearchStringOfExpansionsInterview() {
         final List<Node> nodesAsked = new ArrayList<>();
         final List<PermeationStats> permeationStats = new ArrayList<>();
 
-        while (true) {
-            // Collect still alive nodes
-            final List<Node> aliveNodes = allNodes.stream()
-                .filter(n -> !n.classificationConfirmed)
-                .collect(Collectors.toList());
-
-            if (aliveNodes.isEmpty()) 
-                break;
-
-            // Find the longest chain among alive nodes.
-            // NOT a hansel chain necessarily. Thought it could be technically a hansel chain?
-            // but just a string of Nodes which are all + 1 in some attribute from another.
-            // just the longest string of dominoes.
-            final ArrayList<Node> longestChain = findLongestStringOfExpansions(aliveNodes);
-
-            if (longestChain.isEmpty()) 
-                break; // safety
+        // the longest string of expansions from every unconfirmed node. NOT a hansel chain necessarily,
+        // but just a string of Nodes which are all + 1 in some attribute from another. just the longest string of dominoes.
+        final ExpansionStrings expansionStrings = new ExpansionStrings(lattice);
+        while (!expansionStrings.isEmpty()) {
 
             // Take the middle node of the longest chain
+            final ArrayList<Node> longestChain = expansionStrings.longestString();
             final Node middleNode = longestChain.get(longestChain.size() / 2);
 
             // Query expert or ML
             final int classification = askQuestion(middleNode);
             // Permeate classification
-            final PermeationStats permeationStatsForNode = middleNode.permeateClassification(classification);
+            final PermeationStats permeationStatsForNode = permeate(middleNode, classification);
             if (Objects.nonNull(liveInterviewVisualizer)) {
                 liveInterviewVisualizer.notifyClassificationsChanged();
             }
             nodesAsked.add(middleNode);
             permeationStats.add(permeationStatsForNode);
+            expansionStrings.update(permeationStatsForNode.nodesConfirmed);
         }
 
+        System.out.printf("Longest strings of expansions: [%s] questions asked, [%s] lengths worked out, [%s] ms spent finding strings.%n",
+                nodesAsked.size(), expansionStrings.lengthsWorkedOut(), expansionStrings.millisSpent());
         return new InterviewStats(nodesAsked, permeationStats);
     }
 
-    private InterviewStats nonBinarySearchHCsInterview(final ArrayList<ArrayList<Node>> hanselChainSet,
+    private InterviewStats nonBinarySearchHCsInterview(final HanselChainSet hanselChainSet,
                                                        final boolean completingTheSquareTechnique,
                                                        final Comparator<Node> choosingAlternateMiddleNodeTechnique) {
 
@@ -643,21 +961,21 @@ public class Interview {
 
         final boolean useMaxComparison = (choosingAlternateMiddleNodeTechnique == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA);
 
-        // we have to keep a list of chunks of the chain which are not confirmed. basically we chop the chain
-        // each time that we confirm a node. we could confirm a bunch with one question, and we have to investigate all the
-        // chains/chunks to determine that. a chain
-        ArrayList<ArrayList<Node>> chunks = new ArrayList<>(hanselChainSet);
+        // we have to keep track of the chunks of the chains which are not confirmed. basically we chop the chain
+        // each time that we confirm a node. we could confirm a bunch with one question, but only the chunks holding those nodes get cut.
+        final ChunkIndex chunks = ChunkIndex.overChains(hanselChainSet, lattice.state);
         while (!chunks.isEmpty()){
 
             // get our biggest chunk
-            final ArrayList<Node> chunkToQuestion = Collections.max(chunks, Comparator.comparingInt(List::size));
+            final List<Node> chunkToQuestion = chunks.longest();
 
             // this part is important. we are going to do a (nunmClassesInChunk - 1)ary search through the chain.
             final Node topNode = chunkToQuestion.getLast();
             final Node bottomNode = chunkToQuestion.getFirst();
-            final int highestClassPossibleInChain = topNode.maxPossibleValue;
-            final int lowestClassPossibleInChiain = bottomNode.classification;
+            final int highestClassPossibleInChain = topNode.getMaxPossibleValue();
+            final int lowestClassPossibleInChiain = bottomNode.getClassification();
             final int totalNumberOfClasses = highestClassPossibleInChain - lowestClassPossibleInChiain + 1;
+            final RoaringBitmap confirmedThisRound = new RoaringBitmap();
 
             // if totalNumberOfClasses = 2, we do a typical binary search. if it is 3, we query the nodes at the 1/3rd mark and 2/3rds marks.
             for(int numerator = 1; numerator < totalNumberOfClasses; numerator++){
@@ -666,7 +984,7 @@ public class Interview {
 
                 // this is possible if say our first question of the chunk confirms a bunch of nodes up above it.
                 Node nodeToQuestion = chunkToQuestion.get(indexToQuestion);
-                if (nodeToQuestion.classificationConfirmed)
+                if (nodeToQuestion.isClassificationConfirmed())
                     continue;
 
                 if (completingTheSquareTechnique){
@@ -685,100 +1003,22 @@ public class Interview {
                 // ask the expert or ML
                 final int classification = askQuestion(nodeToQuestion);
 
-                final PermeationStats permStats = nodeToQuestion.permeateClassification(classification);
+                final PermeationStats permStats = permeate(nodeToQuestion, classification);
                 if (Objects.nonNull(liveInterviewVisualizer)) {
                     liveInterviewVisualizer.notifyClassificationsChanged();
                 }
                 questionsAsked.add(nodeToQuestion);
                 permeationStats.add(permStats);
+                confirmedThisRound.or(permStats.nodesConfirmed);
             }
 
-            // for each chunk we have remaining of each chain, we are going to chop them up, splitting on parts where they are confirmed.
-            chunks = chunks.parallelStream()
-                    .flatMap(chunk -> InterviewHelperFunctions.splitChunkIntoPiecesHelper(chunk).stream())
-                    .collect(Collectors.toCollection(ArrayList::new));
+            // chop up the chunks which had nodes confirmed, splitting on parts where they are confirmed.
+            chunks.refresh(confirmedThisRound);
         }
 
         return new InterviewStats(questionsAsked, permeationStats);
     }
 
-    // ALL NODES IS ONLY THE UNCONFIRMED NODES AT THIS STEP OF INTERVIEW!
-    // This returns the longest possible chain of expansions at this stage of our interview. IMPORTANT: this is NOT a hansel chain, but rather just a chain of Nodes which are + 1 from one another. They could and will be all in different chains all over the place.
-    private ArrayList<Node> findLongestStringOfExpansions(final List<Node> allNodes) {
-        
-        /*
-         * Build our longest possible path like this:
-         * 
-         * - find all our LEAVES (nodes with no unconfirmed neighbors in upExpansions. Up and down are interchangeable in this algorithm, you just have to use whichever one consistently).
-         *      - initialize them with a length of 1.
-         * - iteratively, kind of like a Bellman-Ford, we check each node, and check if we can put a bigger length on it. We do this just by checking if any of it's upExpansions have a larger value than what we have.
-         *     - if we find a bigger length, we update it.
-         * - Then we go through and rebuild our path by finding the node at each step with the longest possible length.
-         */ 
-
-        // map: longest chain length starting at each node
-        final Map<Node, Integer> longestPossibleChainOfExpansionsForEachNodeMap = new HashMap<>();
-
-        // Step 1: initialize leaves (no unconfirmed upstairs neighbors) with a length of 1.
-        for (final Node n : allNodes) {
-            final boolean isTerminal = Arrays.stream(n.upExpansions)
-                .allMatch(nb -> nb == null || nb.classificationConfirmed);
-            if (isTerminal) {
-                longestPossibleChainOfExpansionsForEachNodeMap.put(n, 1);
-            }
-        }
-
-        // Step 2: iteratively update each node's longest length, until we have no progress.
-        boolean progress = true;
-        while (progress) {
-            progress = false;
-
-            for (final Node n : allNodes) {
-
-                final int bestNeighbor = Arrays.stream(n.upExpansions)
-                    .filter(neighbor -> neighbor != null && !neighbor.classificationConfirmed)
-                    .mapToInt(neighbor -> longestPossibleChainOfExpansionsForEachNodeMap.getOrDefault(neighbor, 0))
-                    .max()
-                    .orElse(0);
-
-                // if our best neighbor is not 0, we check if it is better than what we had.
-                final int newVal = (bestNeighbor > 0) ? bestNeighbor + 1 : 0;
-                final int oldVal = longestPossibleChainOfExpansionsForEachNodeMap.getOrDefault(n, 0);
-
-                // if our new value is better than what we had, put that in.
-                if (newVal > oldVal) {
-                    longestPossibleChainOfExpansionsForEachNodeMap.put(n, newVal);
-                    progress = true;
-                }
-            }
-        }
-
-        // Step 3: pick starting node with the max value from our input list.
-        final Node bestNode = longestPossibleChainOfExpansionsForEachNodeMap.entrySet().stream()
-            .max(Comparator.comparingInt(Map.Entry::getValue))
-            .map(Map.Entry::getKey)
-            .orElse(null);
-
-        // if we didn't have one just get out of here.
-        if (bestNode == null) 
-            return new ArrayList<>();
-
-        // Step 4: reconstruct path greedily
-        final ArrayList<Node> path = new ArrayList<>();
-        Node current = bestNode;
-        while (current != null && longestPossibleChainOfExpansionsForEachNodeMap.containsKey(current)) {
-            path.add(current);
-
-            // pick the next node from my down expansions. We want that with the highest count at each step This is the DP approach.
-            current = Arrays.stream(current.upExpansions)
-                .filter(nb -> nb != null && !nb.classificationConfirmed)
-                .max(Comparator.comparingInt(nb -> longestPossibleChainOfExpansionsForEachNodeMap.getOrDefault(nb, 0)))
-                .orElse(null);
-        }
-
-        return path;
-    }
-
     /*
      * General outline is this:
      *      get all nodes.
@@ -787,41 +1027,41 @@ public class Interview {
      *      thus we take that node which had the largest number of confirmations (using the worst case)
      */
     private InterviewStats bestMinConfirmedInterview(final ArrayList<Node> allNodes){
-        
-        // interview stats we need later.
-        final List<Node> nodesAsked = new ArrayList<>();
-        final List<PermeationStats> permeationStatsForEachNodeAsked = new ArrayList<>();
 
-        ArrayList<Node> nodesToAsk = new ArrayList<>(allNodes);
-        while(!nodesToAsk.isEmpty()){
+        // kept in order by our strategy. we go descending, by a nodes minimum guaranteed classifications.
+        // that is, of it's classes, whichever is the worst, we choose the one with the best floor. we are guaranteed to confirm that many at least.
+        final NodeRankingQueue nodesToAsk = new NodeRankingQueue(allNodes, NodeComparisons.BY_MIN_CLASSIFICATIONS, this.balanceRatio, this.numClasses, lattice);
+        return rankingQueueInterview(nodesToAsk);
+    }
 
-            // now sort decreasing, using our strategy. we sort descending, by a nodes minimum guaranteed classifications.
-            // that is, of it's classes, whichever is the worst, we choose the one with the best floor. we are guaranteed to confirm that many at least.
-            final PermeationStats lastUpdate = permeationStatsForEachNodeAsked.isEmpty()
-                ? new PermeationStats(0, 0, 0, new RoaringBitmap(), new RoaringBitmap())
-                : permeationStatsForEachNodeAsked.getLast();
-            Node.updateAllNodeRankings(nodesToAsk, this.balanceRatio, this.numClasses, lastUpdate, allNodesToTheirIDsMap);
+    // the same ranking as bestMinConfirmedInterview, but only as a shortlist. each question goes to whichever node on it really does
+    // best once its answers are tried out, and the rest go back in the queue.
+    private InterviewStats exactMinConfirmedInterview(final ArrayList<Node> allNodes) {
+        final List<Node> nodesAsked = new ArrayList<>();
+        final List<PermeationStats> permeationStats = new ArrayList<>();
 
-            final Node nodeToAsk = Collections.max(nodesToAsk, NodeComparisons.BY_MIN_CLASSIFICATIONS);
+        final NodeRankingQueue nodesToAsk = new NodeRankingQueue(allNodes, NodeComparisons.BY_MIN_CLASSIFICATIONS, this.balanceRatio, this.numClasses, lattice);
+        final ExactConfirmations exactConfirmations = new ExactConfirmations(lattice);
+        while (!nodesToAsk.isEmpty()) {
 
-            // get our value either from expert or ML
-            final int classification = askQuestion(nodeToAsk);
+            final List<Node> shortlist = nodesToAsk.pollBest(EXACT_MINIMUM_CONFIRMED_SHORTLIST_SIZE);
+            final Node nodeToAsk = exactConfirmations.best(shortlist);
+            for (final Node node : shortlist) {
+                if (node != nodeToAsk)
+                    nodesToAsk.putBack(node);
+            }
 
-            // this sets all the upper bounds below, and all the lower bounds above.
-            final PermeationStats thisNodeStats = nodeToAsk.permeateClassification(classification);
+            final int classification = askQuestion(nodeToAsk);
+            final PermeationStats stats = permeate(nodeToAsk, classification);
             if (Objects.nonNull(liveInterviewVisualizer)) {
                 liveInterviewVisualizer.notifyClassificationsChanged();
             }
-            nodesToAsk.remove(nodeToAsk);
             nodesAsked.add(nodeToAsk);
-            permeationStatsForEachNodeAsked.add(thisNodeStats);
-
-            nodesToAsk = nodesToAsk.stream()
-                .filter(node -> !node.classificationConfirmed) // keep only unconfirmed nodes
-                .collect(Collectors.toCollection(ArrayList::new));
+            permeationStats.add(stats);
+            nodesToAsk.update(stats);
         }
 
-        return new InterviewStats(nodesAsked, permeationStatsForEachNodeAsked);
+        return new InterviewStats(nodesAsked, permeationStats);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
 
 import io.github.ryan_glgr.hansel_grapher.helper.Util;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
 
 import java.util.*;
@@ -29,41 +30,16 @@ public class InterviewHelperFunctions {
         return interview;
     }
 
-    public static Map<Integer, Set<Node>> getKnownLowUnitsOfEachClassification(final Map<Integer, Set<Integer[]>> setOfLowUnitsByClassification, final HashMap<Integer, Node> data) {
+    public static Map<Integer, Set<Node>> getKnownLowUnitsOfEachClassification(final Map<Integer, Set<Integer[]>> setOfLowUnitsByClassification, final Lattice lattice) {
         if (Objects.isNull(setOfLowUnitsByClassification))
             return null;
         return setOfLowUnitsByClassification.entrySet().stream()
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
                         entry -> entry.getValue().stream()
-                                .map(lowUnit -> data.get(Node.hash(lowUnit)))
+                                .map(lattice::getNode)
                                 .filter(Objects::nonNull)
                                 .collect(Collectors.toSet())
                 ));
     }
-
-    // splits a list of nodes (part or whole hansel chain) on nodes which are confirmed
-    public static ArrayList<ArrayList<Node>> splitChunkIntoPiecesHelper(final ArrayList<Node> chunk) {
-        final ArrayList<ArrayList<Node>> newChunks = new ArrayList<>();
-        final ArrayList<Node> currentChunk = new ArrayList<>();
-
-        for (final Node node : chunk) {
-            if (node.classificationConfirmed) {
-                // End current chunk if we have nodes collected
-                if (!currentChunk.isEmpty()) {
-                    newChunks.add(new ArrayList<>(currentChunk));
-                    currentChunk.clear();
-                }
-            } else {
-                currentChunk.add(node);
-            }
-        }
-
-        // Add last chunk if there are remaining nodes
-        if (!currentChunk.isEmpty()) {
-            newChunks.add(currentChunk);
-        }
-        return newChunks;
-    }
-
 }
@@ -22,6 +22,17 @@ public enum InterviewMode {
     BINARY_SEARCH_CHUNKS_COMPLETING_SQUARE_BALANCE_RATIO_QUADRATIC,
     BINARY_SEARCH_LONGEST_STRING_OF_EXPANSIONS, // basically finds the longest expansion chain, + 1 in some attribute, as far as we can go, and binary searches that chain at each step.
 
+    // binary search every chain at once. each round takes the middle (or the square completion) of the longest open chunk of every chain,
+    // asks about all of them in one go, and then chops up whatever got confirmed. so the number of rounds is about the depth of the
+    // deepest chain's search, rather than the number of questions. meant for the ML oracle, where each round is one call to python.
+    MULTI_CHAIN_BINARY_SEARCH,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_SMALLEST_DIFFERENCE,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BEST_MIN_CONFIRMED,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_HIGHEST_TOTAL_UMBRELLA_SORT,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_UNITY,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_SHANNON_ENTROPY,
+    MULTI_CHAIN_BINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_QUADRATIC,
+
     NONBINARY_SEARCH_CHAINS,
     NONBINARY_SEARCH_COMPLETING_SQUARE_SMALLEST_DIFFERENCE,
     NONBINARY_SEARCH_COMPLETING_SQUARE_BEST_MIN_CONFIRMED,
@@ -31,6 +42,7 @@ public enum InterviewMode {
     NONBINARY_SEARCH_COMPLETING_SQUARE_BALANCE_RATIO_QUADRATIC,
 
     BEST_MINIMUM_CONFIRMED,                     // method where we check all nodes, and determine which has the best min bound. meaning of all k classes, confirming this one as a particular class, how many nodes get confirmed. The node with the best lower bound is used each iteration.
+    EXACT_MINIMUM_CONFIRMED,                    // same as BEST_MINIMUM_CONFIRMED, but the top few nodes of that ranking are each tried with every class they could be, on a copy of the bounds, and the one whose real worst answer confirms the most is asked.
 
     HIGHEST_TOTAL_UMBRELLA_SORT,                // sort by just the total amount in the umbrella. This means we find the node who's classification affects the most other nodes.
     SMALLEST_DIFFERENCE_UMBRELLA_SORT,          // sort our nodes by the smallest difference above/below. this way we find balanced nodes first
@@ -38,4 +50,14 @@ public enum InterviewMode {
     BEST_BALANCE_RATIO_UNITY,
     BEST_BALANCE_RATIO_SHANNON_ENTROPY,
     BEST_BALANCE_RATIO_QUADRATIC,
+
+    // same rankings as the umbrella sorts, but each round takes a whole batch of the best nodes which are all incomparable to each other,
+    // and asks about them in one go. none of the answers can confirm another node in the batch, so no question is wasted. meant for the
+    // ML oracle, where the round trip to python is most of the cost of a question.
+    BATCHED_ANTICHAIN_BEST_MINIMUM_CONFIRMED,
+    BATCHED_ANTICHAIN_HIGHEST_TOTAL_UMBRELLA_SORT,
+    BATCHED_ANTICHAIN_SMALLEST_DIFFERENCE_UMBRELLA_SORT,
+    BATCHED_ANTICHAIN_BALANCE_RATIO_UNITY,
+    BATCHED_ANTICHAIN_BALANCE_RATIO_SHANNON_ENTROPY,
+    BATCHED_ANTICHAIN_BALANCE_RATIO_QUADRATIC,
 }
@@ -1,8 +1,15 @@
 package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
 
+import org.roaringbitmap.RoaringBitmap;
+
 public interface LiveInterviewVisualizer {
 
     // default as no op so that we don't have to implement.
     default void notifyClassificationsChanged() { }
 
+    // called after an expert adjustment, with every node whose bounds it moved. by default that's just another change of classifications.
+    default void notifyNodesAdjusted(final RoaringBitmap nodesAdjusted) {
+        notifyClassificationsChanged();
+    }
+
 }
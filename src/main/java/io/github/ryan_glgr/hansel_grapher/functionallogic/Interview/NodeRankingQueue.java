@@ -0,0 +1,505 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.UmbrellaIndex;
+import io.github.ryan_glgr.hansel_grapher.helper.BalanceRatio;
+import io.github.ryan_glgr.hansel_grapher.helper.NodeComparisons;
+import io.github.ryan_glgr.hansel_grapher.stats.PermeationStats;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+// the unconfirmed nodes the umbrella based modes pick their questions from, in an indexed max heap by score.
+//
+// a node's scores only come from the bounds of the nodes in its up and down sets, and its own. so after a question, the only nodes
+// which need re-ranking are the ones above or below something the question changed. those are found by walking up and down the
+// lattice from the changed nodes, and only they get re-ranked and moved in the heap, instead of re-ranking and scanning everyone.
+//
+// the scores are copied into the heap as plain ints (and the balance ratio), compared left to right. ties go to the lowest node ID,
+// which is the same node Collections.max (or min) would have picked out of the nodes in ID order.
+class NodeRankingQueue {
+
+    private static final int NOT_IN_HEAP = -1;
+    static final int NO_NODE = -1;
+
+    // how many nodes pollAntichain will pass over for each one it's allowed to take, before it settles for a smaller batch.
+    static final int SKIPS_PER_BATCH_SLOT = 4;
+
+    // the comparators we can rank by, and the scores each one needs.
+    enum Ranking {
+        HIGHEST_TOTAL_UMBRELLA,
+        SMALLEST_DIFFERENCE_UMBRELLA,
+        BEST_BALANCE_RATIO,
+        BY_MIN_CLASSIFICATIONS;
+
+        static Ranking of(final Comparator<Node> comparator) {
+            if (comparator == NodeComparisons.HIGHEST_TOTAL_UMBRELLA)
+                return HIGHEST_TOTAL_UMBRELLA;
+            if (comparator == NodeComparisons.SMALLEST_DIFFERENCE_UMBRELLA)
+                return SMALLEST_DIFFERENCE_UMBRELLA;
+            if (comparator == NodeComparisons.BEST_BALANCE_RATIO)
+                return BEST_BALANCE_RATIO;
+            if (comparator == NodeComparisons.BY_MIN_CLASSIFICATIONS)
+                return BY_MIN_CLASSIFICATIONS;
+            throw new IllegalArgumentException("No ranking queue for that comparator.");
+        }
+    }
+
+    private final Lattice lattice;
+    private final LatticeState state;
+    private final UmbrellaIndex umbrellaIndex;
+    private final BalanceRatio balanceRatio;
+    private final int numClasses;
+    private final Ranking ranking;
+
+    // keysPerNode ints per node, higher is better. then the balance ratio, for the rankings which use it.
+    private final int keysPerNode;
+    private final boolean usesBalanceRatio;
+    private final int[] keys;
+    private final double[] balanceRatios;
+
+    private final int[] heap;
+    private final int[] heapPositionOfNode;
+    private int heapSize = 0;
+
+    // the walk update uses. peekAfter is handed its own by whoever calls it.
+    private final Walk updateWalk;
+
+    NodeRankingQueue(final List<Node> nodes,
+                     final Comparator<Node> comparator,
+                     final BalanceRatio balanceRatio,
+                     final int numClasses,
+                     final Lattice lattice) {
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.umbrellaIndex = lattice.getUmbrellaIndex();
+        this.balanceRatio = balanceRatio;
+        this.numClasses = numClasses;
+        this.ranking = Ranking.of(comparator);
+
+        this.keysPerNode = switch (ranking) {
+            case HIGHEST_TOTAL_UMBRELLA -> 1;
+            case SMALLEST_DIFFERENCE_UMBRELLA -> 2;
+            case BEST_BALANCE_RATIO -> 0;
+            case BY_MIN_CLASSIFICATIONS -> 3;
+        };
+        this.usesBalanceRatio = ranking == Ranking.BEST_BALANCE_RATIO || ranking == Ranking.BY_MIN_CLASSIFICATIONS;
+
+        final int size = lattice.size();
+        this.keys = new int[size * keysPerNode];
+        this.balanceRatios = new double[size];
+        this.heap = new int[size];
+        this.heapPositionOfNode = new int[size];
+        this.updateWalk = new Walk();
+        Arrays.fill(heapPositionOfNode, NOT_IN_HEAP);
+
+        // confirmed nodes would never be asked about anyway, so they don't go in.
+        for (final Node node : nodes) {
+            if (state.isConfirmed(node.nodeID))
+                continue;
+            heapPositionOfNode[node.nodeID] = heapSize;
+            heap[heapSize++] = node.nodeID;
+        }
+        rankAndRebuild(IntStream.range(0, heapSize).map(position -> heap[position]).toArray());
+    }
+
+    boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    // the best node, left where it is.
+    Node peek() {
+        return lattice.getNode(heap[0]);
+    }
+
+    // takes the best node off the top.
+    Node poll() {
+        final int best = heap[0];
+        remove(best);
+        return lattice.getNode(best);
+    }
+
+    // takes up to maxSize of the best nodes off the top, best first.
+    List<Node> pollBest(final int maxSize) {
+        final List<Node> taken = new ArrayList<>(maxSize);
+        while (heapSize > 0 && taken.size() < maxSize) {
+            taken.add(poll());
+        }
+        return taken;
+    }
+
+    // takes this node out, wherever it is in the heap. false if it wasn't in.
+    boolean take(final int nodeID) {
+        if (heapPositionOfNode[nodeID] == NOT_IN_HEAP)
+            return false;
+        remove(nodeID);
+        return true;
+    }
+
+    // puts back a node taken off by poll, with the scores it had. it has to be back before the next update, which only re-ranks
+    // the nodes in the heap.
+    void putBack(final Node node) {
+        add(node.nodeID);
+    }
+
+    // takes up to maxSize of the best nodes off the top, skipping any which are above or below one already taken. so no answer
+    // in the batch can touch another node in it. the skipped ones go back in, and we give up looking after skipping a few per slot.
+    List<Node> pollAntichain(final int maxSize) {
+        final int dimension = lattice.dimension();
+        final int[] takenValues = new int[maxSize * dimension];
+        final int[] candidateValues = new int[dimension];
+        final List<Node> taken = new ArrayList<>(maxSize);
+        final List<Integer> skipped = new ArrayList<>();
+
+        while (heapSize > 0 && taken.size() < maxSize && skipped.size() < maxSize * SKIPS_PER_BATCH_SLOT) {
+            final int nodeID = heap[0];
+            remove(nodeID);
+            for (int attribute = 0; attribute < dimension; attribute++) {
+                candidateValues[attribute] = lattice.valueOf(nodeID, attribute);
+            }
+            if (isComparableToAny(candidateValues, takenValues, taken.size())) {
+                skipped.add(nodeID);
+                continue;
+            }
+            System.arraycopy(candidateValues, 0, takenValues, taken.size() * dimension, dimension);
+            taken.add(lattice.getNode(nodeID));
+        }
+
+        for (final int nodeID : skipped) {
+            add(nodeID);
+        }
+        return taken;
+    }
+
+    // true if the values are at or above, or at or below, any of the first numberOfOthers points packed into others.
+    static boolean isComparableToAny(final int[] values, final int[] others, final int numberOfOthers) {
+        final int dimension = values.length;
+        for (int other = 0; other < numberOfOthers; other++) {
+            boolean below = true;
+            boolean above = true;
+            for (int attribute = 0; attribute < dimension && (below || above); attribute++) {
+                final int otherValue = others[other * dimension + attribute];
+                below &= values[attribute] <= otherValue;
+                above &= values[attribute] >= otherValue;
+            }
+            if (below || above)
+                return true;
+        }
+        return false;
+    }
+
+    // drops whoever the last question confirmed, and re-ranks everyone above or below a node it changed.
+    void update(final PermeationStats statsFromLastQuestion) {
+        update(statsFromLastQuestion.nodesConfirmed, statsFromLastQuestion.nodesWithBoundChanges);
+    }
+
+    // the same, for a whole batch of questions at once.
+    void update(final List<PermeationStats> statsFromLastBatch) {
+        final RoaringBitmap nodesConfirmed = new RoaringBitmap();
+        final RoaringBitmap nodesWithBoundChanges = new RoaringBitmap();
+        for (final PermeationStats stats : statsFromLastBatch) {
+            nodesConfirmed.or(stats.nodesConfirmed);
+            nodesWithBoundChanges.or(stats.nodesWithBoundChanges);
+        }
+        update(nodesConfirmed, nodesWithBoundChanges);
+    }
+
+    private void update(final RoaringBitmap nodesConfirmed, final RoaringBitmap nodesWithBoundChanges) {
+        umbrellaIndex.refresh(nodesConfirmed);
+        umbrellaIndex.refresh(nodesWithBoundChanges);
+
+        nodesConfirmed.forEach((final int nodeID) -> {
+            if (heapPositionOfNode[nodeID] != NOT_IN_HEAP)
+                remove(nodeID);
+        });
+
+        reRank(updateWalk.nodesInHeapComparableTo(RoaringBitmap.or(nodesConfirmed, nodesWithBoundChanges)));
+    }
+
+    // the node update would leave on top, if it were given the stats of an answer permeated onto this (otherwise fresh) overlay. only
+    // the nodes the walk reaches could move, so they're ranked from the overlay, and the best of everyone else is found by searching
+    // down the heap past them. nothing in the queue, the state or the umbrella index is written, so any number of these can run at
+    // once, each with its own walk, as long as the queue is left alone meanwhile. NO_NODE if the answer leaves nobody to ask.
+    int peekAfter(final LatticeState.Overlay overlay, final PermeationStats stats, final Walk walk) {
+        final RoaringBitmap nodesChanged = RoaringBitmap.or(stats.nodesConfirmed, stats.nodesWithBoundChanges);
+        final int[] affected = walk.nodesInHeapComparableTo(nodesChanged);
+
+        int best = bestNotReachedBy(walk);
+        final int[] bestKeys = new int[keysPerNode];
+        double bestBalanceRatio = 0;
+        if (best != NO_NODE) {
+            System.arraycopy(keys, best * keysPerNode, bestKeys, 0, keysPerNode);
+            bestBalanceRatio = balanceRatios[best];
+        }
+
+        // ranked just as Node.updateNodeRanking would, from the counts the overlay would have.
+        final int[] candidateKeys = new int[keysPerNode];
+        for (final int nodeID : affected) {
+            if (overlay.isConfirmed(nodeID))
+                continue;
+            final int floor = overlay.floor(nodeID);
+            final int ceiling = overlay.ceiling(nodeID);
+            final UmbrellaIndex.Counts counts = umbrellaIndex.overlayCounts(overlay, nodesChanged, nodeID);
+            final int above = counts.confirmationsAboveAtCeiling();
+            final int below = counts.confirmationsBelowAtFloor();
+            writeKeys(candidateKeys, 0,
+                    counts.aboveUmbrellaCases(),
+                    counts.underneathUmbrellaCases(),
+                    Math.max(0, ceiling - floor + 1),
+                    floor == ceiling ? 0 : Math.min(above, below),
+                    floor == ceiling ? above + below : Math.max(above, below));
+            final double candidateBalanceRatio = balanceRatio.computeBalanceRatio(counts.aboveUmbrellaCases(), counts.underneathUmbrellaCases());
+
+            if (best == NO_NODE || outranks(candidateKeys, 0, candidateBalanceRatio, nodeID, bestKeys, 0, bestBalanceRatio, best)) {
+                best = nodeID;
+                System.arraycopy(candidateKeys, 0, bestKeys, 0, keysPerNode);
+                bestBalanceRatio = candidateBalanceRatio;
+            }
+        }
+        return best;
+    }
+
+    Walk newWalk() {
+        return new Walk();
+    }
+
+    // the heap is ordered down every path, so taking positions best first from the top hands out its nodes in rank order.
+    private int bestNotReachedBy(final Walk walk) {
+        final PriorityQueue<Integer> positions = new PriorityQueue<>((a, b) -> outranks(heap[a], heap[b]) ? -1 : 1);
+        if (heapSize > 0)
+            positions.add(0);
+        while (!positions.isEmpty()) {
+            final int position = positions.poll();
+            if (!walk.reached(heap[position]))
+                return heap[position];
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < heapSize; child++) {
+                positions.add(child);
+            }
+        }
+        return NO_NODE;
+    }
+
+    private void reRank(final int[] affected) {
+        if (affected.length == 0)
+            return;
+
+        // past a point it is cheaper to just heapify everyone again than to move each one.
+        if (affected.length > heapSize / 2) {
+            rankAndRebuild(affected);
+            return;
+        }
+        IntStream.of(affected).parallel().forEach(nodeID ->
+                Node.updateNodeRanking(lattice.getNode(nodeID), balanceRatio, numClasses, umbrellaIndex));
+        for (final int nodeID : affected) {
+            copyKeys(nodeID);
+            final int position = heapPositionOfNode[nodeID];
+            siftUp(position);
+            siftDown(heapPositionOfNode[nodeID]);
+        }
+    }
+
+    private void rankAndRebuild(final int[] nodeIDs) {
+        IntStream.of(nodeIDs).parallel().forEach(nodeID -> {
+            Node.updateNodeRanking(lattice.getNode(nodeID), balanceRatio, numClasses, umbrellaIndex);
+            copyKeys(nodeID);
+        });
+        for (int position = heapSize / 2 - 1; position >= 0; position--) {
+            siftDown(position);
+        }
+    }
+
+    // the nodes still in the heap which are above or below (or are) some given nodes, found by walking up and down the lattice from
+    // them. the marks are cleared by bumping the stamp, so a walk can be reused, but only by one thread at a time.
+    final class Walk {
+
+        private final int[] upStamp;
+        private final int[] downStamp;
+        private final int[] pending;
+        private final int[] found;
+        private int stamp = 0;
+
+        Walk() {
+            final int size = lattice.size();
+            this.upStamp = new int[size];
+            this.downStamp = new int[size];
+            this.pending = new int[size];
+            this.found = new int[size];
+        }
+
+        // every node still in the heap which is above or below (or is) one of the given nodes, in no particular order.
+        int[] nodesInHeapComparableTo(final RoaringBitmap nodeIDs) {
+            stamp++;
+            int numberFound = walkFrom(nodeIDs, upStamp, downStamp, true, 0);
+            numberFound = walkFrom(nodeIDs, downStamp, upStamp, false, numberFound);
+            return Arrays.copyOf(found, numberFound);
+        }
+
+        // true if the last walk got to this node, going either way.
+        boolean reached(final int nodeID) {
+            return upStamp[nodeID] == stamp || downStamp[nodeID] == stamp;
+        }
+
+        // marks everything reachable from the given nodes going one way, and adds the ones in the heap which the other walk hasn't
+        // already found onto 'found'.
+        private int walkFrom(final RoaringBitmap nodeIDs,
+                             final int[] marks,
+                             final int[] otherMarks,
+                             final boolean goingUp,
+                             int numberFound) {
+            int numberPending = 0;
+            for (final int nodeID : nodeIDs) {
+                marks[nodeID] = stamp;
+                pending[numberPending++] = nodeID;
+            }
+            while (numberPending > 0) {
+                final int nodeID = pending[--numberPending];
+                if (heapPositionOfNode[nodeID] != NOT_IN_HEAP && otherMarks[nodeID] != stamp)
+                    found[numberFound++] = nodeID;
+
+                for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                    final int neighbor = goingUp
+                            ? lattice.upNeighborID(nodeID, attribute)
+                            : lattice.downNeighborID(nodeID, attribute);
+                    if (neighbor == Lattice.NO_NEIGHBOR || marks[neighbor] == stamp)
+                        continue;
+                    marks[neighbor] = stamp;
+                    pending[numberPending++] = neighbor;
+                }
+            }
+            return numberFound;
+        }
+    }
+
+    private void copyKeys(final int nodeID) {
+        writeKeys(keys, nodeID * keysPerNode,
+                state.aboveUmbrellaCases(nodeID),
+                state.underneathUmbrellaCases(nodeID),
+                numClasses - state.classesRuledOut(nodeID),
+                state.fewerPossibleConfirmations(nodeID),
+                state.morePossibleConfirmations(nodeID));
+        balanceRatios[nodeID] = state.balanceRatio(nodeID);
+    }
+
+    private void writeKeys(final int[] into,
+                           final int from,
+                           final int above,
+                           final int underneath,
+                           final int classesPossible,
+                           final int fewerPossibleConfirmations,
+                           final int morePossibleConfirmations) {
+        switch (ranking) {
+            case HIGHEST_TOTAL_UMBRELLA -> into[from] = above + underneath;
+            case SMALLEST_DIFFERENCE_UMBRELLA -> {
+                into[from] = -Math.abs(above - underneath);
+                into[from + 1] = above + underneath;
+            }
+            case BEST_BALANCE_RATIO -> { }
+            case BY_MIN_CLASSIFICATIONS -> packConfirmations(into, from, classesPossible, fewerPossibleConfirmations, morePossibleConfirmations);
+        }
+    }
+
+    // the sorted confirmations by class are zeros, then the (at most two) counts above zero, then NOT_SET for the rest. comparing two
+    // of those lists left to right goes through those pieces in order: fewer zeros win, and a count above zero is beaten by NOT_SET.
+    // so these three numbers order nodes just as the whole lists would, however many classes there are.
+    private static void packConfirmations(final int[] into,
+                                          final int from,
+                                          final int classesPossible,
+                                          final int fewerPossibleConfirmations,
+                                          final int morePossibleConfirmations) {
+        into[from] = -Math.max(0, classesPossible - 2);
+        into[from + 1] = LatticeState.NOT_SET;
+        into[from + 2] = LatticeState.NOT_SET;
+        if (classesPossible >= 2)
+            packCount(into, fewerPossibleConfirmations, from);
+        if (classesPossible >= 1)
+            packCount(into, morePossibleConfirmations, from);
+    }
+
+    // counts have to come in ascending order, and are never below zero.
+    private static void packCount(final int[] into, final int count, final int from) {
+        if (count == 0)
+            into[from]--;
+        else
+            into[into[from + 1] == LatticeState.NOT_SET ? from + 1 : from + 2] = count;
+    }
+
+    // true if node a belongs above node b.
+    private boolean outranks(final int a, final int b) {
+        return outranks(keys, a * keysPerNode, balanceRatios[a], a, keys, b * keysPerNode, balanceRatios[b], b);
+    }
+
+    private boolean outranks(final int[] keysOfA, final int fromA, final double balanceRatioOfA, final int a,
+                             final int[] keysOfB, final int fromB, final double balanceRatioOfB, final int b) {
+        for (int i = 0; i < keysPerNode; i++) {
+            if (keysOfA[fromA + i] != keysOfB[fromB + i])
+                return keysOfA[fromA + i] > keysOfB[fromB + i];
+        }
+        if (usesBalanceRatio) {
+            final int cmp = Double.compare(balanceRatioOfA, balanceRatioOfB);
+            if (cmp != 0)
+                return cmp > 0;
+        }
+        return a < b;
+    }
+
+    // puts a node back in, with the scores it had.
+    private void add(final int nodeID) {
+        heap[heapSize] = nodeID;
+        heapPositionOfNode[nodeID] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    private void remove(final int nodeID) {
+        final int position = heapPositionOfNode[nodeID];
+        heapPositionOfNode[nodeID] = NOT_IN_HEAP;
+        heapSize--;
+        if (position != heapSize) {
+            heap[position] = heap[heapSize];
+            heapPositionOfNode[heap[position]] = position;
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) / 2;
+            if (!outranks(heap[position], heap[parent]))
+                return;
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = 2 * position + 1;
+            final int right = left + 1;
+            int best = position;
+            if (left < heapSize && outranks(heap[left], heap[best]))
+                best = left;
+            if (right < heapSize && outranks(heap[right], heap[best]))
+                best = right;
+            if (best == position)
+                return;
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        final int nodeID = heap[i];
+        heap[i] = heap[j];
+        heap[j] = nodeID;
+        heapPositionOfNode[heap[i]] = i;
+        heapPositionOfNode[heap[j]] = j;
+    }
+}
@@ -3,6 +3,7 @@ package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
 import io.github.ryan_glgr.hansel_grapher.functionrules.Attribute;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.PythonInterpreter;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnitIndex;
 
 import java.util.*;
 
@@ -18,24 +19,24 @@ public class QuestionHelper {
         return min((sum / datapoint.values.length), (numClasses - 1));
     }
 
-    public static int knownLowUnitsQuestion(final Node datapoint, final Map<Integer, Set<Node>> lowUnitsForEachClassification) {
-        return lowUnitsForEachClassification.entrySet().stream()
-                .filter(entry -> entry.getKey() > 0)
-                .filter(entry -> entry.getValue().stream()
-                        .anyMatch(lowUnit -> lowUnit.isDominatedBy(datapoint, true)))
-                .map(Map.Entry::getKey)
-                .max(Integer::compareTo)
-                .orElse(0);
+    // the highest class with a known low unit under this datapoint. anything no low unit is under is class 0.
+    public static int knownLowUnitsQuestion(final Node datapoint, final LowUnitIndex knownLowUnits) {
+        return Math.max(0, knownLowUnits.highestClassOf(datapoint.values));
     }
 
     public static int questionExpert(final Node datapoint, final Scanner inputScanner) {
+        return questionExpert(datapoint, datapoint.getClassification(), datapoint.getMaxPossibleValue(), inputScanner);
+    }
+
+    // for when the datapoint's bounds can't be read while we wait, because answers are being tried out on it in the background.
+    public static int questionExpert(final Node datapoint, final int minimum, final int maximum, final Scanner inputScanner) {
         System.out.println("WHAT IS THE CLASSIFICATION FOR THIS DATAPOINT?");
         System.out.println(Arrays.toString(datapoint.values));
-        System.out.println("\tCURRENT MINIMUM:\t" + datapoint.classification);
-        System.out.println("\tCURRENT MAXIMUM:\t" + datapoint.maxPossibleValue);
+        System.out.println("\tCURRENT MINIMUM:\t" + minimum);
+        System.out.println("\tCURRENT MAXIMUM:\t" + maximum);
         System.out.println("INPUT:\t");
         final int expertInput = inputScanner.nextInt();
-        if (expertInput < datapoint.classification || expertInput > datapoint.maxPossibleValue) {
+        if (expertInput < minimum || expertInput > maximum) {
             System.out.println("MONOTONICITY VIOLATION!");
             throw new RuntimeException("MONOTONICITY RUINED!");
         }
@@ -0,0 +1,277 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.datamanipulation.NormalizedDataset;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.PythonInterpreter;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.SparseLattice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// an interview over a SparseLattice, for when the k values are too big to make every node. we can't walk every chain there,
+// so instead we only classify what the dataset actually covers: each datapoint which the borders haven't confirmed already is asked
+// about itself, and never costs more than that one question. a datapoint the borders did confirm leaves its question to spare, and
+// those go on searching the Hansel chains of the asked datapoints for where their class starts and ends, which sharpens the borders
+// for the datapoints still to come. so we never ask more questions than there are datapoints. everything else is left to the borders.
+//
+// up to batchSize datapoints are searched at once, and each round their questions go to the oracle in one call.
+public class SparseInterview {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    public final SparseLattice lattice;
+    public final Integer[] kVals;
+    public final int numClasses;
+    public final String[] attributeNames;
+
+    private final List<Integer[]> datapoints;
+    // the classes of a whole batch of nodes, in the same order.
+    private final Function<List<Integer[]>, List<Integer>> magicFunction;
+    private final PythonInterpreter pythonInterpreter;
+
+    public int batchSize = DEFAULT_BATCH_SIZE; // how many datapoints are searched at once.
+
+    // every node we asked about, in order.
+    public final List<Integer[]> nodesAsked = new ArrayList<>();
+
+    // questions which datapoints the borders confirmed didn't need, and which the chain searches can have.
+    private int questionsToSpare = 0;
+
+    private static final long NO_QUESTION = -1;
+
+    // one datapoint, and then the search of its chain. the datapoint is at chain[position], and it is asked about first, unless the
+    // borders confirm it. once it has its class, each side of it which that doesn't settle is binary searched over [low, high) for
+    // the lowest node whose class is past the threshold: below it for where its own class starts, and above it for where the next
+    // one does. the search only ever narrows on bounds, so a middle the borders already settle costs nothing.
+    private final class Search {
+        private final long datapointID;
+        private final long[] chain;
+        private final int position;
+        private boolean askedDatapoint = false;
+        private boolean searchingChain = false;
+        private boolean searchingAbove = false;
+        private int threshold;
+        private int low;
+        private int high;
+
+        private Search(final long datapointID, final long[] chain) {
+            this.datapointID = datapointID;
+            this.chain = chain;
+            int position = 0;
+            while (chain[position] != datapointID) {
+                position++;
+            }
+            this.position = position;
+        }
+
+        // the next node this search needs an answer for, once it has narrowed as far as the bounds let it. NO_QUESTION once it's done.
+        private long nextQuestion() {
+            if (!lattice.isConfirmed(datapointID))
+                return datapointID;
+            if (!searchingChain) {
+                searchingChain = true;
+                // confirmed by the borders, so its question is free for a chain search.
+                if (!askedDatapoint) {
+                    questionsToSpare++;
+                }
+                searchBelow();
+            }
+            while (true) {
+                while (low < high) {
+                    final int middle = (low + high) / 2;
+                    if (lattice.floor(chain[middle]) > threshold)
+                        high = middle;
+                    else if (lattice.ceiling(chain[middle]) <= threshold)
+                        low = middle + 1;
+                    else
+                        return chain[middle];
+                }
+                if (searchingAbove)
+                    return NO_QUESTION;
+                searchAbove();
+            }
+        }
+
+        // everything below is at most the datapoint's class, so we look for where that class starts. nothing to find if it's the
+        // lowest class, or the node right under it is already in a lower one.
+        private void searchBelow() {
+            final int classification = lattice.floor(datapointID);
+            threshold = classification - 1;
+            low = 0;
+            high = position;
+            if (classification == 0 || (position > 0 && lattice.ceiling(chain[position - 1]) <= threshold)) {
+                low = high;
+            }
+        }
+
+        // everything above is at least the datapoint's class, so we look for where it's left behind.
+        private void searchAbove() {
+            searchingAbove = true;
+            final int classification = lattice.floor(datapointID);
+            threshold = classification;
+            low = position + 1;
+            high = chain.length;
+            if (classification == numClasses - 1 || (low < high && lattice.floor(chain[low]) > threshold)) {
+                low = high;
+            }
+        }
+    }
+
+    public SparseInterview(final NormalizedDataset normalizedDataset,
+                           final MLModel mlModel) {
+        this(normalizedDataset,
+                PythonInterpreter.getNormalizedDatasetAndBeginPredictionServer(mlModel, normalizedDataset));
+    }
+
+    private SparseInterview(final NormalizedDataset normalizedDataset,
+                            final PythonInterpreter pythonInterpreter) {
+        this(normalizedDataset.getKValues(),
+                normalizedDataset.getNumClasses(),
+                normalizedDataset.getAttributeNames(),
+                normalizedDataset.getAllDatapoints(),
+                pythonInterpreter::predictValues,
+                pythonInterpreter);
+    }
+
+    // datapoints can have their class on the end, like the rows of a NormalizedDataset. anything past the k values is ignored.
+    public SparseInterview(final Integer[] kVals,
+                           final int numClasses,
+                           final String[] attributeNames,
+                           final List<Integer[]> datapoints,
+                           final ToIntFunction<Integer[]> magicFunction) {
+        this(kVals,
+                numClasses,
+                attributeNames,
+                datapoints,
+                batch -> batch.stream().map(magicFunction::applyAsInt).toList(),
+                null);
+    }
+
+    private SparseInterview(final Integer[] kVals,
+                            final int numClasses,
+                            final String[] attributeNames,
+                            final List<Integer[]> datapoints,
+                            final Function<List<Integer[]>, List<Integer>> magicFunction,
+                            final PythonInterpreter pythonInterpreter) {
+        this.lattice = new SparseLattice(kVals, numClasses);
+        this.kVals = kVals;
+        this.numClasses = numClasses;
+        this.attributeNames = attributeNames;
+        this.datapoints = datapoints;
+        this.magicFunction = magicFunction;
+        this.pythonInterpreter = pythonInterpreter;
+    }
+
+    public void beginInterview() {
+        final Iterator<Integer[]> rows = datapoints.iterator();
+        final List<Search> searches = new ArrayList<>();
+        while (true) {
+            while (searches.size() < batchSize && rows.hasNext()) {
+                final long datapointID = lattice.materialize(Arrays.copyOf(rows.next(), kVals.length));
+                if (lattice.isConfirmed(datapointID))
+                    questionsToSpare++;
+                else
+                    searches.add(new Search(datapointID, lattice.hanselChainOf(datapointID)));
+            }
+            if (searches.isEmpty())
+                break;
+
+            askRound(searches);
+        }
+
+        if (pythonInterpreter != null) {
+            try {
+                pythonInterpreter.killPython();
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    // every search gives up the next node it needs. the datapoints go first, and then the chain searches, for as long as there are
+    // questions to spare. a search which can't have one is dropped, and its chain is left to the borders. they are all asked about
+    // together, but one answer can pin down a node above or below it, so only an antichain of them goes, the same as the
+    // multi-chain interview does it. the others get their turn next round.
+    private void askRound(final List<Search> searches) {
+        final List<Search> datapointSearches = new ArrayList<>();
+        final List<Search> chainSearches = new ArrayList<>();
+        final List<Long> nextQuestions = new ArrayList<>();
+        final Iterator<Search> remaining = searches.iterator();
+        while (remaining.hasNext()) {
+            final Search search = remaining.next();
+            final long question = search.nextQuestion();
+            if (question == NO_QUESTION) {
+                remaining.remove();
+            } else if (question == search.datapointID) {
+                datapointSearches.add(search);
+            } else {
+                chainSearches.add(search);
+                nextQuestions.add(question);
+            }
+        }
+
+        final List<Long> asking = new ArrayList<>();
+        final List<Integer[]> questions = new ArrayList<>();
+        for (final Search search : datapointSearches) {
+            if (addIfIncomparable(search.datapointID, asking, questions)) {
+                search.askedDatapoint = true;
+            }
+        }
+        for (int i = 0; i < chainSearches.size(); i++) {
+            if (questionsToSpare == 0) {
+                searches.remove(chainSearches.get(i));
+            } else if (addIfIncomparable(nextQuestions.get(i), asking, questions)) {
+                questionsToSpare--;
+            }
+        }
+        if (questions.isEmpty())
+            return;
+
+        final List<Integer> classifications = magicFunction.apply(questions);
+        for (int i = 0; i < asking.size(); i++) {
+            lattice.classify(asking.get(i), classifications.get(i));
+            nodesAsked.add(questions.get(i));
+        }
+    }
+
+    // adds this node to the round, if it's not above or below anything already in it.
+    private boolean addIfIncomparable(final long nodeID, final List<Long> asking, final List<Integer[]> questions) {
+        final Integer[] values = lattice.values(nodeID);
+        if (questions.stream().anyMatch(question -> isComparable(values, question)))
+            return false;
+        asking.add(nodeID);
+        questions.add(values);
+        return true;
+    }
+
+    // true if one of these is at or above the other in every attribute.
+    private static boolean isComparable(final Integer[] a, final Integer[] b) {
+        boolean aIsBelow = true;
+        boolean bIsBelow = true;
+        for (int attribute = 0; attribute < a.length; attribute++) {
+            aIsBelow &= a[attribute] <= b[attribute];
+            bIsBelow &= b[attribute] <= a[attribute];
+        }
+        return aIsBelow || bIsBelow;
+    }
+
+    public Map<Integer, List<Integer[]>> getLowUnitsByClass() {
+        return lattice.getLowUnitsByClass();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Sparse interview over ").append(lattice.size()).append(" possible nodes.\n");
+        sb.append("Questions asked: ").append(nodesAsked.size()).append("\n");
+        sb.append("Nodes materialized: ").append(lattice.materializedCount()).append("\n");
+        getLowUnitsByClass().forEach((classification, lowUnits) ->
+                sb.append("Class ").append(classification).append(" low units: ").append(lowUnits.size()).append("\n"));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.Interview;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import io.github.ryan_glgr.hansel_grapher.stats.PermeationStats;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+// works out the next question of a NodeRankingQueue for every answer the expert could give, while they are still thinking about the
+// current one. each answer is permeated onto an overlay of its own, and the queue works out who would be on top from that, so the
+// lattice, the state and the queue are only ever read, and the answers are all tried at once. when the real answer comes in, its
+// overlay is written into the lattice rather than permeating it all over again, and we already know what to ask next, so we can ask
+// it straight away. the queue catches up with the real answer in the background, while the expert thinks about that next question.
+//
+// the jobs run one after another on a background thread, with the answers of each question spread over the common pool. the interview
+// thread only writes the lattice or touches the queue after stop(), which waits for all of that to finish.
+class SpeculativeQuestions implements AutoCloseable {
+
+    private static final int NOT_WORKED_OUT = -2;
+
+    private final NodeRankingQueue nodesToAsk;
+    private final Lattice lattice;
+    private final LatticeState state;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "speculative-questions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<Void> work = CompletableFuture.completedFuture(null);
+    private volatile boolean stopSpeculating = false;
+
+    // the node on top of the queue after each answer to the current question, by answer. NOT_WORKED_OUT until we get to it.
+    private int[] nextQuestionByAnswer = new int[0];
+
+    // the overlay each answer was tried on, and what permeating it there gave back. only good until the state is next written.
+    private LatticeState.Overlay[] overlayByAnswer = new LatticeState.Overlay[0];
+    private PermeationStats[] statsByAnswer = new PermeationStats[0];
+
+    // a walk for each answer, kept from one question to the next, since they're the size of the lattice.
+    private NodeRankingQueue.Walk[] walksByAnswer = new NodeRankingQueue.Walk[0];
+
+    SpeculativeQuestions(final NodeRankingQueue nodesToAsk, final Lattice lattice) {
+        this.nodesToAsk = nodesToAsk;
+        this.lattice = lattice;
+        this.state = lattice.state;
+    }
+
+    // starts trying out every answer to this question, which has already been taken off the queue.
+    void speculateOn(final Node question, final int lowestAnswer, final int highestAnswer) {
+        final int numberOfAnswers = Math.max(0, highestAnswer - lowestAnswer + 1);
+        final int[] nextQuestions = new int[numberOfAnswers];
+        Arrays.fill(nextQuestions, NOT_WORKED_OUT);
+        nextQuestionByAnswer = nextQuestions;
+        final LatticeState.Overlay[] overlays = new LatticeState.Overlay[numberOfAnswers];
+        final PermeationStats[] stats = new PermeationStats[numberOfAnswers];
+        overlayByAnswer = overlays;
+        statsByAnswer = stats;
+        if (walksByAnswer.length < numberOfAnswers) {
+            walksByAnswer = Arrays.copyOf(walksByAnswer, numberOfAnswers);
+        }
+        final NodeRankingQueue.Walk[] walks = walksByAnswer;
+        stopSpeculating = false;
+
+        work = work.thenRunAsync(() -> IntStream.range(0, numberOfAnswers).parallel().forEach(index -> {
+            if (stopSpeculating)
+                return;
+            if (walks[index] == null) {
+                walks[index] = nodesToAsk.newWalk();
+            }
+            overlays[index] = state.overlay();
+            stats[index] = lattice.permeateClassification(overlays[index], question.nodeID, lowestAnswer + index);
+            nextQuestions[index] = nodesToAsk.peekAfter(overlays[index], stats[index], walks[index]);
+        }), executor);
+    }
+
+    // waits for the background work to finish. after this, the queue is as the real answers left it.
+    void stop() {
+        stopSpeculating = true;
+        work.join();
+    }
+
+    // writes this answer to the question we speculated on into the lattice, from the overlay it was tried on, and hands back its
+    // stats. null if we didn't get to it in time, and it has to be permeated the usual way.
+    PermeationStats commit(final int lowestAnswer, final int answer) {
+        final int index = answer - lowestAnswer;
+        if (index < 0 || index >= nextQuestionByAnswer.length || nextQuestionByAnswer[index] == NOT_WORKED_OUT)
+            return null;
+        lattice.commit(overlayByAnswer[index], statsByAnswer[index]);
+        return statsByAnswer[index];
+    }
+
+    // the next question to ask, after this answer to the question we speculated on was permeated for real. if we got to that answer
+    // in time, it's handed back right away, and the queue catches up in the background. otherwise the queue is updated here.
+    // null once there is nothing left to ask.
+    Node nextQuestion(final int lowestAnswer, final int answer, final PermeationStats stats) {
+        final int index = answer - lowestAnswer;
+        final int known = index >= 0 && index < nextQuestionByAnswer.length
+                ? nextQuestionByAnswer[index]
+                : NOT_WORKED_OUT;
+
+        if (known == NOT_WORKED_OUT) {
+            nodesToAsk.update(stats);
+            return nodesToAsk.isEmpty() ? null : nodesToAsk.poll();
+        }
+        if (known == NodeRankingQueue.NO_NODE) {
+            nodesToAsk.update(stats);
+            return null;
+        }
+
+        // the expert is already looking at the speculated node by the time the queue catches up, so that's the one which comes out,
+        // even if the queue would rather have asked something else. that one just stays in for later.
+        work = work.thenRunAsync(() -> {
+            nodesToAsk.update(stats);
+            final int best = nodesToAsk.peek().nodeID;
+            if (best != known) {
+                System.err.println(String.format("Speculated node %d would be asked next, but the queue would ask %d.", known, best));
+            }
+            nodesToAsk.take(known);
+        }, executor);
+        return lattice.getNode(known);
+    }
+
+    @Override
+    public void close() {
+        stop();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,417 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import io.github.ryan_glgr.hansel_grapher.stats.PermeationStats;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+// dense index over every point of the k value lattice. each node's ID is its mixed radix rank over the k values,
+// with attribute 0 as the least significant digit. this is the same order incrementCounter walks the lattice in, so
+// the node with ID i is simply nodes[i], and the neighbor +/- 1 in attribute a is just i +/- strides[a].
+public class Lattice {
+
+    public static final int NO_NEIGHBOR = -1;
+
+    // smallest run of IDs worth handing to its own task when we build the nodes.
+    private static final int MIN_NODES_PER_TASK = 4096;
+
+    public final Integer[] kVals;
+
+    // the classification bounds and ranking data of every node, stored column wise by node ID.
+    public final LatticeState state;
+
+    // strides[a] is the product of all k values before attribute a. moving by one in attribute a moves by strides[a] in ID.
+    private final int[] strides;
+    private final Node[] nodes;
+
+    // up and down sets of any node, by intersecting one bitmap per attribute.
+    public final AttributeSliceIndex attributeSlices;
+
+    // built the first time someone ranks the nodes, since not every interview mode needs umbrella counts. from then on refreshIndexes
+    // keeps it up to date with the state store, along with the attribute slices.
+    private volatile UmbrellaIndex umbrellaIndex;
+
+    public Lattice(final Integer[] kVals, final int numClasses) {
+        this(kVals, numClasses, null, null);
+    }
+
+    // used when loading a snapshot, which already has the attribute slices for these k values.
+    Lattice(final Integer[] kVals,
+            final int numClasses,
+            final ImmutableRoaringBitmap[][] atLeastSlices,
+            final ImmutableRoaringBitmap[][] atMostSlices) {
+        this.kVals = kVals;
+        this.strides = computeStrides(kVals);
+        this.nodes = new Node[computeSize(kVals)];
+        this.state = new LatticeState(nodes.length, numClasses);
+
+        // make all the nodes in parallel, over disjoint runs of IDs. each run decodes its first ID once, then just walks
+        // the counter, which goes in exactly the rank order. the node's values copy is the only allocation per node.
+        final int tasks = Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 4);
+        final int nodesPerTask = Math.max(MIN_NODES_PER_TASK, Math.ceilDiv(nodes.length, tasks));
+        IntStream.range(0, Math.ceilDiv(nodes.length, nodesPerTask))
+                .parallel()
+                .forEach(task -> {
+                    final int start = task * nodesPerTask;
+                    final int end = Math.min(nodes.length, start + nodesPerTask);
+                    final Integer[] kValsToMakeNode = valuesOf(start);
+                    for (int nodeID = start; nodeID < end; nodeID++) {
+                        nodes[nodeID] = new Node(kValsToMakeNode, this, nodeID);
+                        Node.incrementCounter(kValsToMakeNode, kVals);
+                    }
+                });
+        this.attributeSlices = new AttributeSliceIndex(this, atLeastSlices, atMostSlices);
+    }
+
+    private static int[] computeStrides(final Integer[] kVals) {
+        final int[] strides = new int[kVals.length];
+        int stride = 1;
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            strides[attribute] = stride;
+            stride *= kVals[attribute];
+        }
+        return strides;
+    }
+
+    // the number of nodes has to fit in an int for us to index them. fail loudly rather than silently wrapping around.
+    private static int computeSize(final Integer[] kVals) {
+        int size = 1;
+        for (final Integer kVal : kVals) {
+            if (kVal < 1) {
+                throw new IllegalArgumentException(String.format("k values must be positive. Got: %s", Arrays.toString(kVals)));
+            }
+            try {
+                size = Math.multiplyExact(size, kVal);
+            } catch (final ArithmeticException overflow) {
+                throw new IllegalArgumentException(String.format("Lattice with k values %s has more than %s nodes.",
+                        Arrays.toString(kVals), Integer.MAX_VALUE), overflow);
+            }
+        }
+        return size;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public int dimension() {
+        return kVals.length;
+    }
+
+    public int stride(final int attribute) {
+        return strides[attribute];
+    }
+
+    public Node getNode(final int nodeID) {
+        return nodes[nodeID];
+    }
+
+    // returns null if the values are not a point in this lattice.
+    public Node getNode(final Integer[] values) {
+        final int nodeID = rank(values);
+        return nodeID == NO_NEIGHBOR ? null : nodes[nodeID];
+    }
+
+    // the mixed radix rank of a datapoint, or NO_NEIGHBOR if any digit is outside of [0, k).
+    public int rank(final Integer[] values) {
+        if (values.length != kVals.length) {
+            return NO_NEIGHBOR;
+        }
+        return rankOfRow(values);
+    }
+
+    // the same, for a row which can have more on the end, like its class in a NormalizedDataset. anything past the k values is ignored.
+    public int rankOfRow(final Integer[] row) {
+        if (row.length < kVals.length) {
+            return NO_NEIGHBOR;
+        }
+        int nodeID = 0;
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            final int value = row[attribute];
+            if (value < 0 || value >= kVals[attribute]) {
+                return NO_NEIGHBOR;
+            }
+            nodeID += value * strides[attribute];
+        }
+        return nodeID;
+    }
+
+    // the value of a single attribute of a node, read straight out of its ID.
+    public int valueOf(final int nodeID, final int attribute) {
+        return (nodeID / strides[attribute]) % kVals[attribute];
+    }
+
+    // the datapoint with this ID, decoded from its mixed radix rank.
+    public Integer[] valuesOf(final int nodeID) {
+        final Integer[] values = new Integer[kVals.length];
+        for (int attribute = 0; attribute < values.length; attribute++) {
+            values[attribute] = valueOf(nodeID, attribute);
+        }
+        return values;
+    }
+
+    public int upNeighborID(final int nodeID, final int attribute) {
+        return valueOf(nodeID, attribute) + 1 < kVals[attribute]
+                ? nodeID + strides[attribute]
+                : NO_NEIGHBOR;
+    }
+
+    public int downNeighborID(final int nodeID, final int attribute) {
+        return valueOf(nodeID, attribute) > 0
+                ? nodeID - strides[attribute]
+                : NO_NEIGHBOR;
+    }
+
+    public UmbrellaIndex getUmbrellaIndex() {
+        UmbrellaIndex index = umbrellaIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = umbrellaIndex;
+                if (index == null) {
+                    index = new UmbrellaIndex(this);
+                    umbrellaIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // called by whatever writes to the state store, once it's done, with every node it confirmed or moved a bound of. the umbrella
+    // index only has to hear about it if it has been built, since building it reads the state as it is then.
+    public void refreshIndexes(final RoaringBitmap nodesConfirmed, final RoaringBitmap nodesWithBoundChanges) {
+        attributeSlices.refresh(nodesConfirmed);
+        synchronized (this) {
+            if (umbrellaIndex != null) {
+                umbrellaIndex.refresh(nodesConfirmed);
+                umbrellaIndex.refresh(nodesWithBoundChanges);
+            }
+        }
+    }
+
+    // writes an answer which was tried out on an overlay into the state, just as permeateClassification would have left it, without
+    // working any of it out again. the stats are the ones permeateClassification(overlay, ...) gave back, and the state can't have
+    // been written since the overlay was made, or the overlay's bounds would be out of date.
+    public void commit(final LatticeState.Overlay overlay, final PermeationStats stats) {
+        RoaringBitmap.or(stats.nodesConfirmed, stats.nodesWithBoundChanges).forEach((final int nodeID) -> {
+            state.setFloor(nodeID, overlay.floor(nodeID));
+            state.setCeiling(nodeID, overlay.ceiling(nodeID));
+            state.setConfirmed(nodeID, overlay.isConfirmed(nodeID));
+        });
+        refreshIndexes(stats.nodesConfirmed, stats.nodesWithBoundChanges);
+    }
+
+    // applies a whole set of answers at once, for replaying a session or seeding from labels we already know. rather than a pair of
+    // expansions per answer, it's one sweep up the IDs for the floors and one back down for the ceilings. every down neighbor has a
+    // lower ID than its node, so by the time we reach a node its down neighbors all have their new floors, and its floor is just the
+    // max of theirs and its own. same for ceilings on the way down, as a min over the up neighbors.
+    //
+    // nothing is written until every answer has been checked, so a monotonicity violation leaves the lattice as it was. the stats are
+    // what one permeateClassification would give if all the answers were a single question: the answered nodes are confirmed, but not
+    // counted, and the bound changes are everybody else's.
+    //
+    // this knows nothing of the interview. during one, use Interview.permeateClassifications, which keeps its low unit border up too.
+    public PermeationStats permeateClassifications(final int[] nodeIDs, final int[] classifications) {
+        if (nodeIDs.length != classifications.length) {
+            throw new IllegalArgumentException(String.format("Got %d nodes but %d classifications.", nodeIDs.length, classifications.length));
+        }
+
+        // working copies of the bounds. an impossible node has no bounds of its own, but an impossible region can sit in between two
+        // nodes, so it still passes on whatever reaches it. it starts out with bounds which never win the max or the min.
+        final int[] floors = new int[nodes.length];
+        final int[] ceilings = new int[nodes.length];
+        for (int nodeID = 0; nodeID < nodes.length; nodeID++) {
+            floors[nodeID] = state.floor(nodeID);
+            ceilings[nodeID] = floors[nodeID] == Node.IMPOSSIBLE_CLASSIFICATION
+                    ? Integer.MAX_VALUE
+                    : state.ceiling(nodeID);
+        }
+
+        final RoaringBitmap answeredNodes = new RoaringBitmap();
+        int lowestAnswered = nodes.length;
+        int highestAnswered = -1;
+        for (int i = 0; i < nodeIDs.length; i++) {
+            final int nodeID = nodeIDs[i];
+            final int classification = classifications[i];
+            if (classification < 0 || classification >= state.numClasses) {
+                throw new IllegalArgumentException(String.format("Classification %d of node %d is not one of our %d classes.", classification, nodeID, state.numClasses));
+            }
+            if (isImpossible(nodeID)) {
+                throw new IllegalStateException(String.format("Node %d is impossible, but was given classification %d.", nodeID, classification));
+            }
+            // an answer the node's bounds (or an earlier answer for the same node) already rule out.
+            if (classification < floors[nodeID]) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too low for min possible value of %s", classification, floors[nodeID]));
+            }
+            if (classification > ceilings[nodeID]) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too high for max possible value of %s", classification, ceilings[nodeID]));
+            }
+            floors[nodeID] = classification;
+            ceilings[nodeID] = classification;
+            answeredNodes.add(nodeID);
+            lowestAnswered = Math.min(lowestAnswered, nodeID);
+            highestAnswered = Math.max(highestAnswered, nodeID);
+        }
+        if (highestAnswered == -1) {
+            return new PermeationStats(0, 0, 0, new RoaringBitmap(), new RoaringBitmap());
+        }
+
+        // floors only move above the lowest answer, and ceilings only below the highest, so each sweep starts there.
+        final int[] digits = new int[kVals.length];
+        decodeInto(lowestAnswered, digits);
+        for (int nodeID = lowestAnswered; nodeID < nodes.length; nodeID++) {
+            int floor = floors[nodeID];
+            for (int attribute = 0; attribute < digits.length; attribute++) {
+                if (digits[attribute] > 0) {
+                    floor = Math.max(floor, floors[nodeID - strides[attribute]]);
+                }
+            }
+            if (floor > ceilings[nodeID] && !isImpossible(nodeID)) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Node %d gets a min possible value of %s, above its max possible value of %s", nodeID, floor, ceilings[nodeID]));
+            }
+            floors[nodeID] = floor;
+            incrementDigits(digits);
+        }
+
+        decodeInto(highestAnswered, digits);
+        for (int nodeID = highestAnswered; nodeID >= 0; nodeID--) {
+            int ceiling = ceilings[nodeID];
+            for (int attribute = 0; attribute < digits.length; attribute++) {
+                if (digits[attribute] + 1 < kVals[attribute]) {
+                    ceiling = Math.min(ceiling, ceilings[nodeID + strides[attribute]]);
+                }
+            }
+            if (ceiling < floors[nodeID] && !isImpossible(nodeID)) {
+                throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Node %d gets a max possible value of %s, below its min possible value of %s", nodeID, ceiling, floors[nodeID]));
+            }
+            ceilings[nodeID] = ceiling;
+            decrementDigits(digits);
+        }
+
+        // everything checks out, so write it all in.
+        final RoaringBitmap nodesConfirmed = new RoaringBitmap();
+        final RoaringBitmap nodesWithBoundChanges = new RoaringBitmap();
+        int numberOfNodesTouchedAbove = 0;
+        int numberOfNodesTouchedBelow = 0;
+        int numberOfConfirmations = 0;
+        for (int nodeID = 0; nodeID < nodes.length; nodeID++) {
+            if (isImpossible(nodeID) || state.isConfirmed(nodeID)) {
+                continue;
+            }
+            final boolean floorRaised = floors[nodeID] > state.floor(nodeID);
+            final boolean ceilingLowered = ceilings[nodeID] < state.ceiling(nodeID);
+            if (!floorRaised && !ceilingLowered && !answeredNodes.contains(nodeID)) {
+                continue;
+            }
+            state.setFloor(nodeID, floors[nodeID]);
+            state.setCeiling(nodeID, ceilings[nodeID]);
+
+            if (answeredNodes.contains(nodeID)) {
+                state.setConfirmed(nodeID, true);
+                nodesConfirmed.add(nodeID);
+                continue;
+            }
+            nodesWithBoundChanges.add(nodeID);
+            numberOfNodesTouchedAbove += floorRaised ? 1 : 0;
+            numberOfNodesTouchedBelow += ceilingLowered ? 1 : 0;
+            if (floors[nodeID] == ceilings[nodeID]) {
+                state.setConfirmed(nodeID, true);
+                nodesConfirmed.add(nodeID);
+                numberOfConfirmations++;
+            }
+        }
+        refreshIndexes(nodesConfirmed, nodesWithBoundChanges);
+
+        return new PermeationStats(numberOfConfirmations,
+                numberOfNodesTouchedAbove,
+                numberOfNodesTouchedBelow,
+                nodesConfirmed,
+                nodesWithBoundChanges);
+    }
+
+    // what permeateClassification would do if this node were given this class, written into the overlay instead of the state. the
+    // stats come back just the same, nodes confirmed and all. the overlay can already hold other answers tried before this one, and
+    // they're taken into account. nothing in the lattice is written, so many of these can run at once, each on its own overlay.
+    public PermeationStats permeateClassification(final LatticeState.Overlay overlay, final int nodeID, final int classification) {
+        if (classification < overlay.floor(nodeID)) {
+            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too low for min possible value of %s", classification, overlay.floor(nodeID)));
+        }
+        if (classification > overlay.ceiling(nodeID)) {
+            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too high for max possible value of %s", classification, overlay.ceiling(nodeID)));
+        }
+        overlay.setFloor(nodeID, classification);
+        overlay.setCeiling(nodeID, classification);
+
+        // the same boxes as Node.expand. the slices only know what the state has confirmed, so the overlay's own are skipped here.
+        final RoaringBitmap nodesWithBoundChanges = new RoaringBitmap();
+        final int[] numberOfNodesTouchedAbove = { 0 };
+        attributeSlices.unconfirmedUpSet(nodeID).forEach((final int id) -> {
+            if (!overlay.isConfirmed(id) && overlay.floor(id) < classification) {
+                overlay.setFloor(id, classification);
+                nodesWithBoundChanges.add(id);
+                numberOfNodesTouchedAbove[0]++;
+            }
+        });
+        attributeSlices.unconfirmedDownSet(nodeID).forEach((final int id) -> {
+            if (!overlay.isConfirmed(id) && overlay.ceiling(id) > classification) {
+                overlay.setCeiling(id, classification);
+                nodesWithBoundChanges.add(id);
+            }
+        });
+
+        final RoaringBitmap nodesConfirmed = new RoaringBitmap();
+        nodesWithBoundChanges.forEach((final int id) -> {
+            if (overlay.floor(id) == overlay.ceiling(id)) {
+                overlay.setConfirmed(id, true);
+                nodesConfirmed.add(id);
+            }
+        });
+        final int numberOfConfirmations = nodesConfirmed.getCardinality();
+        overlay.setConfirmed(nodeID, true);
+        nodesConfirmed.add(nodeID);
+
+        return new PermeationStats(numberOfConfirmations,
+                numberOfNodesTouchedAbove[0],
+                nodesWithBoundChanges.getCardinality() - numberOfNodesTouchedAbove[0],
+                nodesConfirmed,
+                nodesWithBoundChanges);
+    }
+
+    private boolean isImpossible(final int nodeID) {
+        return state.floor(nodeID) == Node.IMPOSSIBLE_CLASSIFICATION;
+    }
+
+    private void decodeInto(final int nodeID, final int[] digits) {
+        for (int attribute = 0; attribute < digits.length; attribute++) {
+            digits[attribute] = valueOf(nodeID, attribute);
+        }
+    }
+
+    // the same walk as Node.incrementCounter, one ID at a time, so the sweeps never have to divide to find a node's values.
+    private void incrementDigits(final int[] digits) {
+        for (int attribute = 0; attribute < digits.length; attribute++) {
+            if (++digits[attribute] < kVals[attribute]) {
+                return;
+            }
+            digits[attribute] = 0;
+        }
+    }
+
+    private void decrementDigits(final int[] digits) {
+        for (int attribute = 0; attribute < digits.length; attribute++) {
+            if (--digits[attribute] >= 0) {
+                return;
+            }
+            digits[attribute] = kVals[attribute] - 1;
+        }
+    }
+
+    // all nodes, in ID order.
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+// on disk snapshot of the structural part of a lattice: the attribute slices and the hansel chains, with the chains' reverse index.
+// none of it depends on anything but the k values, so every interview over the same attributes would otherwise rebuild them
+// identically. the first run writes the snapshot, and every run after maps it and uses it in place: the slices are immutable bitmaps
+// over the mapping and the chains are int buffers over it, so loading reads nothing but the header, and pages come in as they're used.
+// the classification state is never stored, every lattice starts fresh, so the lattice itself only has to make its nodes, which are
+// views of that state. its neighbors are worked out from the ID and the strides, so there's no table of those to store.
+//
+// the number of classes is not part of the key, since none of what is stored depends on it.
+public class LatticeSnapshot {
+
+    // set to false to always build from scratch, and never touch the disk.
+    public static boolean USE_SNAPSHOTS = true;
+
+    // a cache, so it goes in the temp directory by default rather than anywhere near the sources. point it somewhere else to keep
+    // snapshots across reboots. the temp directory is shared, so each user gets their own, which only they can get into where the
+    // file system lets us say so.
+    public static Path SNAPSHOT_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"),
+            "hansel_grapher-" + System.getProperty("user.name"), "latticesnapshots");
+
+    // a mapping is indexed by int, so nothing bigger than this can be mapped in one piece.
+    private static final long LARGEST_SNAPSHOT = Integer.MAX_VALUE;
+
+    // "HGLS", bumped along with VERSION whenever the layout below changes, so stale files are rebuilt rather than misread.
+    private static final int MAGIC = 0x48474C53;
+    private static final int VERSION = 2;
+
+    /*
+     * Layout. all ints are little endian, like roaring's own portable format which the bitmaps are in. every int and every bitmap
+     * starts on a multiple of 4 bytes, so the int runs can be used straight out of the mapping.
+     *   MAGIC, VERSION, dimension, kVals[dimension]
+     *   for each attribute, for each value: size + bytes of the ">=" slice, then size + bytes of the "<=" slice
+     *   numberOfChains, chainOffsets[numberOfChains + 1], nodeIDs[size], chainOfNode[size], positionOfNode[size]
+     */
+
+    public final Lattice lattice;
+    public final HanselChainSet hanselChains;
+
+    private LatticeSnapshot(final Lattice lattice, final HanselChainSet hanselChains) {
+        this.lattice = lattice;
+        this.hanselChains = hanselChains;
+    }
+
+    // loads the snapshot for these k values if there is a good one, and otherwise builds the structure and saves it for next time.
+    public static LatticeSnapshot loadOrBuild(final Integer[] kVals, final int numClasses) {
+        if (!USE_SNAPSHOTS) {
+            return build(kVals, numClasses);
+        }
+
+        final Path snapshotPath = snapshotPathFor(kVals);
+        if (Files.isRegularFile(snapshotPath)) {
+            try {
+                final LatticeSnapshot snapshot = load(snapshotPath, kVals, numClasses);
+                if (snapshot != null) {
+                    return snapshot;
+                }
+            } catch (final IOException | RuntimeException e) {
+                System.err.println("Could not read lattice snapshot " + snapshotPath + ", rebuilding it. " + e.getMessage());
+            }
+        }
+
+        final LatticeSnapshot snapshot = build(kVals, numClasses);
+        try {
+            snapshot.write(snapshotPath);
+        } catch (final IOException | RuntimeException e) {
+            // the snapshot is only a shortcut. not being able to save it is no reason to stop the interview.
+            System.err.println("Could not write lattice snapshot " + snapshotPath + ". " + e.getMessage());
+        }
+        return snapshot;
+    }
+
+    private static LatticeSnapshot build(final Integer[] kVals, final int numClasses) {
+        final Lattice lattice = Node.makeNodes(kVals, numClasses);
+        return new LatticeSnapshot(lattice, HanselChains.generateHanselChainSet(kVals, lattice));
+    }
+
+    private static Path snapshotPathFor(final Integer[] kVals) {
+        final String key = Arrays.stream(kVals)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-"));
+        return SNAPSHOT_DIRECTORY.resolve("lattice_" + key + ".bin");
+    }
+
+    // returns null if the file is for some other lattice. the mapping outlives the channel, and stays for as long as the slices and
+    // chains which point into it.
+    private static LatticeSnapshot load(final Path snapshotPath, final Integer[] kVals, final int numClasses) throws IOException {
+        final ByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != kVals.length) {
+            return null;
+        }
+        for (final Integer kVal : kVals) {
+            if (buffer.getInt() != kVal) {
+                return null;
+            }
+        }
+
+        final ImmutableRoaringBitmap[][] atLeastSlices = new ImmutableRoaringBitmap[kVals.length][];
+        final ImmutableRoaringBitmap[][] atMostSlices = new ImmutableRoaringBitmap[kVals.length][];
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            atLeastSlices[attribute] = new ImmutableRoaringBitmap[kVals[attribute]];
+            atMostSlices[attribute] = new ImmutableRoaringBitmap[kVals[attribute]];
+            for (int value = 0; value < kVals[attribute]; value++) {
+                atLeastSlices[attribute][value] = mapBitmap(buffer);
+                atMostSlices[attribute][value] = mapBitmap(buffer);
+            }
+        }
+
+        final Lattice lattice = new Lattice(kVals, numClasses, atLeastSlices, atMostSlices);
+
+        final int numberOfChains = buffer.getInt();
+        final IntBuffer chainOffsets = mapInts(buffer, numberOfChains + 1);
+        final IntBuffer nodeIDs = mapInts(buffer, lattice.size());
+        final IntBuffer chainOfNode = mapInts(buffer, lattice.size());
+        final IntBuffer positionOfNode = mapInts(buffer, lattice.size());
+        if (!chainsAreConsistent(chainOffsets, nodeIDs, chainOfNode, positionOfNode)) {
+            return null;
+        }
+        return new LatticeSnapshot(lattice, new HanselChainSet(lattice, chainOffsets, nodeIDs, chainOfNode, positionOfNode));
+    }
+
+    // the chains are trusted from here on, so before that, check the offsets only go up, from 0 to the end of the IDs, and that the
+    // reverse index takes every node to a place in a chain which holds that node. that makes the IDs a permutation of the lattice.
+    private static boolean chainsAreConsistent(final IntBuffer chainOffsets,
+                                               final IntBuffer nodeIDs,
+                                               final IntBuffer chainOfNode,
+                                               final IntBuffer positionOfNode) {
+        final int numberOfChains = chainOffsets.limit() - 1;
+        if (chainOffsets.get(0) != 0 || chainOffsets.get(numberOfChains) != nodeIDs.limit()) {
+            return false;
+        }
+        for (int chain = 0; chain < numberOfChains; chain++) {
+            if (chainOffsets.get(chain + 1) <= chainOffsets.get(chain)) {
+                return false;
+            }
+        }
+        for (int nodeID = 0; nodeID < nodeIDs.limit(); nodeID++) {
+            final int chain = chainOfNode.get(nodeID);
+            final int position = positionOfNode.get(nodeID);
+            if (chain < 0 || chain >= numberOfChains || position < 0
+                    || position >= chainOffsets.get(chain + 1) - chainOffsets.get(chain)
+                    || nodeIDs.get(chainOffsets.get(chain) + position) != nodeID) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // each bitmap is prefixed with its size, so roaring gets exactly its own bytes of the mapping, and reads them where they are.
+    private static ImmutableRoaringBitmap mapBitmap(final ByteBuffer buffer) {
+        final int size = buffer.getInt();
+        final ImmutableRoaringBitmap bitmap = new ImmutableRoaringBitmap(buffer.slice(buffer.position(), size));
+        buffer.position(buffer.position() + padded(size));
+        return bitmap;
+    }
+
+    private static IntBuffer mapInts(final ByteBuffer buffer, final int count) {
+        final IntBuffer ints = buffer.slice(buffer.position(), count * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return ints;
+    }
+
+    private static int padded(final int size) {
+        return (size + Integer.BYTES - 1) & -Integer.BYTES;
+    }
+
+    // written into a mapping of a temporary file first and then moved into place, so a run which reads while another writes never
+    // sees half a file. lattices too big to map are just never saved.
+    private void write(final Path snapshotPath) throws IOException {
+        final AttributeSliceIndex attributeSlices = lattice.attributeSlices;
+        long fileSize = (long) Integer.BYTES * (3 + lattice.dimension() + 1 + hanselChains.numberOfChains() + 1 + 3L * lattice.size());
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            for (int value = 0; value < lattice.kVals[attribute]; value++) {
+                fileSize += Integer.BYTES + padded(attributeSlices.atLeastSlice(attribute, value).serializedSizeInBytes());
+                fileSize += Integer.BYTES + padded(attributeSlices.atMostSlice(attribute, value).serializedSizeInBytes());
+            }
+        }
+
+        if (fileSize > LARGEST_SNAPSHOT) {
+            return;
+        }
+
+        createPrivateDirectories(snapshotPath.getParent());
+        final Path temporaryPath = Files.createTempFile(snapshotPath.getParent(), "lattice", ".tmp");
+        try (final FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(lattice.dimension());
+            for (final Integer kVal : lattice.kVals) {
+                out.putInt(kVal);
+            }
+
+            for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                for (int value = 0; value < lattice.kVals[attribute]; value++) {
+                    writeBitmap(out, attributeSlices.atLeastSlice(attribute, value));
+                    writeBitmap(out, attributeSlices.atMostSlice(attribute, value));
+                }
+            }
+
+            out.putInt(hanselChains.numberOfChains());
+            for (final IntBuffer ints : List.of(hanselChains.chainOffsets(), hanselChains.nodeIDs(), hanselChains.chainOfNode(), hanselChains.positionOfNode())) {
+                out.asIntBuffer().put(ints);
+                out.position(out.position() + ints.limit() * Integer.BYTES);
+            }
+            out.force();
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+
+        try {
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void createPrivateDirectories(final Path directory) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory);
+            return;
+        }
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    }
+
+    private static void writeBitmap(final ByteBuffer out, final ImmutableRoaringBitmap bitmap) {
+        final int size = bitmap.serializedSizeInBytes();
+        out.putInt(size);
+        bitmap.serialize(out.slice(out.position(), size));
+        out.position(out.position() + padded(size));
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// columnar store for the interview state of every node in a lattice. everything is a primitive array indexed by node ID,
+// so the permeation and ranking loops walk contiguous memory instead of chasing one object (and a pile of boxed Integers) per node.
+// Node is just a view into one slot of this.
+public class LatticeState {
+
+    // floors and ceilings are stored as shorts. impossible nodes are stored as this, and translated back to
+    // Node.IMPOSSIBLE_CLASSIFICATION at the edges, which keeps the ordering the same since both are the minimum of their type.
+    private static final short IMPOSSIBLE = Short.MIN_VALUE;
+
+    // assume we had a node who's min classifications by class were [1, 2, 2] and another who's min classifications by class were:
+    //  [0 (because it is guaranteed to NOT be this class by monotonicity already), 6, 12] we would choose the first, since it's min is lower.
+    // but in reality, we want that second one, since the first class is just not possible. the real min is 6. not 0. so we have to have a flag for not set.
+    // the reason it's max value, is so that when we sort the counts, this number last still, and will serve as a tiebreaker
+    public static final int NOT_SET = Integer.MAX_VALUE;
+
+    public final int size;
+    public final int numClasses;
+
+    // lower and upper bound on the classification of each node. a node is pinned down once these meet.
+    private final short[] floors;
+    private final short[] ceilings;
+    private final BitSet confirmed;
+
+    // ranking data. written by Node.updateAllNodeRankings, read by the comparators.
+    final int[] aboveUmbrellaCases;
+    final int[] underneathUmbrellaCases;
+    final double[] balanceRatios;
+    final double[] umbrellaMagnitudes;
+
+    // how many nodes each class we could give a node would confirm, sorted ascending. of the classes a node can still be, only its
+    // floor and its ceiling confirm anybody, so that list is just the two counts for those (the one for both, if they're the same
+    // class) sorted in with a zero for every class in between, then NOT_SET for each class it can't be anymore. so these three
+    // numbers are the whole list.
+    final int[] classesRuledOut;
+    final int[] fewerPossibleConfirmations;
+    final int[] morePossibleConfirmations;
+
+    public LatticeState(final int size, final int numClasses) {
+        if (numClasses < 1 || numClasses > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Number of classes must be between 1 and %d. Got: %d", Short.MAX_VALUE, numClasses));
+        }
+        this.size = size;
+        this.numClasses = numClasses;
+
+        this.floors = new short[size];
+        this.ceilings = new short[size];
+        Arrays.fill(ceilings, (short) (numClasses - 1));
+        this.confirmed = new BitSet(size);
+
+        this.aboveUmbrellaCases = new int[size];
+        this.underneathUmbrellaCases = new int[size];
+        this.balanceRatios = new double[size];
+        this.umbrellaMagnitudes = new double[size];
+        this.classesRuledOut = new int[size];
+        this.fewerPossibleConfirmations = new int[size];
+        this.morePossibleConfirmations = new int[size];
+    }
+
+    private static short encode(final int classification) {
+        return classification == Node.IMPOSSIBLE_CLASSIFICATION ? IMPOSSIBLE : (short) classification;
+    }
+
+    private static int decode(final short classification) {
+        return classification == IMPOSSIBLE ? Node.IMPOSSIBLE_CLASSIFICATION : classification;
+    }
+
+    public int floor(final int nodeID) {
+        return decode(floors[nodeID]);
+    }
+
+    public void setFloor(final int nodeID, final int classification) {
+        floors[nodeID] = encode(classification);
+    }
+
+    public int ceiling(final int nodeID) {
+        return decode(ceilings[nodeID]);
+    }
+
+    public void setCeiling(final int nodeID, final int classification) {
+        ceilings[nodeID] = encode(classification);
+    }
+
+    public boolean isConfirmed(final int nodeID) {
+        return confirmed.get(nodeID);
+    }
+
+    // not safe to call from multiple threads at once, the bits share words.
+    public void setConfirmed(final int nodeID, final boolean isConfirmed) {
+        confirmed.set(nodeID, isConfirmed);
+    }
+
+    // a fresh copy on write view of the bounds and confirmed bits, to try out answers on without touching the real ones.
+    public Overlay overlay() {
+        return new Overlay();
+    }
+
+    // reads fall through to the store until a page is written, and then that whole page is copied into the overlay. so trying out
+    // an answer only costs the pages it writes, and any number of overlays can be used at once from different threads, as long as
+    // nobody writes the store itself in the meantime.
+    public final class Overlay {
+
+        private static final int PAGE_BITS = 10;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        // null until written.
+        private final short[][] floorPages;
+        private final short[][] ceilingPages;
+        private final long[][] confirmedPages;
+
+        private Overlay() {
+            final int numberOfPages = (size + PAGE_SIZE - 1) >>> PAGE_BITS;
+            this.floorPages = new short[numberOfPages][];
+            this.ceilingPages = new short[numberOfPages][];
+            this.confirmedPages = new long[numberOfPages][];
+        }
+
+        public int floor(final int nodeID) {
+            final short[] page = floorPages[nodeID >>> PAGE_BITS];
+            return decode(page == null ? floors[nodeID] : page[nodeID & PAGE_MASK]);
+        }
+
+        public void setFloor(final int nodeID, final int classification) {
+            writablePage(floorPages, floors, nodeID)[nodeID & PAGE_MASK] = encode(classification);
+        }
+
+        public int ceiling(final int nodeID) {
+            final short[] page = ceilingPages[nodeID >>> PAGE_BITS];
+            return decode(page == null ? ceilings[nodeID] : page[nodeID & PAGE_MASK]);
+        }
+
+        public void setCeiling(final int nodeID, final int classification) {
+            writablePage(ceilingPages, ceilings, nodeID)[nodeID & PAGE_MASK] = encode(classification);
+        }
+
+        public boolean isConfirmed(final int nodeID) {
+            final long[] page = confirmedPages[nodeID >>> PAGE_BITS];
+            if (page == null)
+                return confirmed.get(nodeID);
+            return (page[(nodeID & PAGE_MASK) >>> 6] & (1L << nodeID)) != 0;
+        }
+
+        public void setConfirmed(final int nodeID, final boolean isConfirmed) {
+            final int pageNumber = nodeID >>> PAGE_BITS;
+            if (confirmedPages[pageNumber] == null) {
+                final int from = pageNumber << PAGE_BITS;
+                confirmedPages[pageNumber] = Arrays.copyOf(confirmed.get(from, from + PAGE_SIZE).toLongArray(), PAGE_SIZE / Long.SIZE);
+            }
+            final long bit = 1L << nodeID;
+            if (isConfirmed)
+                confirmedPages[pageNumber][(nodeID & PAGE_MASK) >>> 6] |= bit;
+            else
+                confirmedPages[pageNumber][(nodeID & PAGE_MASK) >>> 6] &= ~bit;
+        }
+
+        private short[] writablePage(final short[][] pages, final short[] store, final int nodeID) {
+            final int pageNumber = nodeID >>> PAGE_BITS;
+            if (pages[pageNumber] == null) {
+                final int from = pageNumber << PAGE_BITS;
+                pages[pageNumber] = Arrays.copyOfRange(store, from, from + PAGE_SIZE);
+            }
+            return pages[pageNumber];
+        }
+    }
+
+    public int aboveUmbrellaCases(final int nodeID) {
+        return aboveUmbrellaCases[nodeID];
+    }
+
+    public int underneathUmbrellaCases(final int nodeID) {
+        return underneathUmbrellaCases[nodeID];
+    }
+
+    public double balanceRatio(final int nodeID) {
+        return balanceRatios[nodeID];
+    }
+
+    public double umbrellaMagnitude(final int nodeID) {
+        return umbrellaMagnitudes[nodeID];
+    }
+
+    // the i'th smallest number of confirmations this node could get us, across the classes it can still be.
+    public int possibleConfirmations(final int nodeID, final int i) {
+        final int classesPossible = numClasses - classesRuledOut[nodeID];
+        if (i >= classesPossible)
+            return NOT_SET;
+        if (classesPossible == 1)
+            return morePossibleConfirmations[nodeID];
+
+        final int zeros = classesPossible - 2;
+        if (i < zeros)
+            return 0;
+        return i - zeros == 0 ? fewerPossibleConfirmations[nodeID] : morePossibleConfirmations[nodeID];
+    }
+
+    public int classesRuledOut(final int nodeID) {
+        return classesRuledOut[nodeID];
+    }
+
+    public int fewerPossibleConfirmations(final int nodeID) {
+        return fewerPossibleConfirmations[nodeID];
+    }
+
+    public int morePossibleConfirmations(final int nodeID) {
+        return morePossibleConfirmations[nodeID];
+    }
+}
@@ -1,7 +1,6 @@
 package io.github.ryan_glgr.hansel_grapher.functionallogic;
 
 import java.util.*;
-import java.util.stream.IntStream;
 
 import io.github.ryan_glgr.hansel_grapher.helper.BalanceRatio;
 import io.github.ryan_glgr.hansel_grapher.helper.Util;
@@ -11,68 +10,32 @@ import org.roaringbitmap.RoaringBitmap;
 public class Node {
 
     public static boolean DEBUG_PRINTING = false;
-    public static Integer IMPOSSIBLE_CLASSIFICATION = Integer.MIN_VALUE;
-
-    // assume we had a node who's min classifications by class were [1, 2, 2] and another who's min classifications by class were:
-    //  [0 (because it is guaranteed to NOT be this class by monotonicity already), 6, 12] we would choose the first, since it's min is lower.
-    // but in reality, we want that second one, since the first class is just not possible. the real min is 6. not 0. so we have to have a flag for not set.
-    // the reason it's max value, is so that when we sort the counts, this number last still, and will serve as a tiebreaker
-    private static final Integer NOT_SET = Integer.MAX_VALUE;
+    public static final int IMPOSSIBLE_CLASSIFICATION = Integer.MIN_VALUE;
 
     // the datapoint this point represents
-    public Integer[] values;
+    public final Integer[] values;
 
     // cached sum of all values in this datapoint for efficient sorting
-    public int sum;
-
-    // the classification of this point
-    public Integer classification;
-
-    // used when our lower bound and upperbound are the same. (or we've just asked the expert.)
-    // once it's confirmed, we don't need to ask a question of course
-    public boolean classificationConfirmed;
-
-    // highest possible class this node can have
-    public Integer maxPossibleValue; // comes from above during interview
+    public final int sum;
 
-    // the direct neighbors that are up by one in each attribute. null if it is not valid to increase the attribute at that index by one
-    public Node[] upExpansions;
+    // our position in the lattice. this is also our index into every array of the state store.
+    public final int nodeID;
 
-    // direct neighbors downwards
-    public Node[] downExpansions;
+    // the lattice we live in, used to find our expansions. null for a detached copy, which has no neighbors.
+    private final Lattice lattice;
 
-    // used to calculate how far we think a classification can permeate. 
+    // everything about our classification lives in here, not in the node. the node is just a view of slot 'slot'.
+    // classification is the floor, maxPossibleValue is the ceiling, and once they meet (or we ask the expert) we are confirmed.
+    //
+    // the umbrella counts are used to calculate how far we think a classification can permeate.
     // For example, if i have 3 down expansions, each with 3 unique down expansions, we have 12 in our umbrella. we could update 12 nodes with one question.
     // the size of the umbrella is helpful to know which nodes are powerful in terms of their question giving us more info.
-    public int totalUmbrellaCases;
-
     // underneath is all the recursive "not confirmed" nodes under. vice versa for above.
-    public int underneathUmbrellaCases;
-    public int aboveUmbrellaCases;
-
-    // stores whether we can reach each node from all other nodes.
-    public int nodeID = -1; // needed for the bit mapping operations.
-    public RoaringBitmap reachableNodesAbove;
-    public RoaringBitmap reachableNodesBelow;
-
-    // stores the number of possible confirmations by class in this way.
-    // hypothetically compute how many confirmations we would get by assigning this node to each class. and store them respectively.
-    public Integer[] possibleConfirmationsByClass;
-
-    // used as a different measure of how "good" an umbrella is. basically, we want a node which has a lot of nodes in umbrella, and they're balanced.
-    // so we take the ratio with the total number / the difference in above and below cases. 
-    public double balanceRatio;
-
-    public double umbrellaMagnitude;
-
-    // hash function is easy. k value [i] * point val [i] as a running sum and then vals [0] gets added.
-    public static Integer hash(final Integer[] keyVal) {
-        long sum = 0;
-        for (int i = 0; i < keyVal.length; i++) {
-            sum += (long) Math.pow(31, i) * keyVal[i];
-        }
-        return (int) (sum % Integer.MAX_VALUE);
-    }
+    //
+    // the balance ratio is used as a different measure of how "good" an umbrella is. basically, we want a node which has a lot of nodes in umbrella, and they're balanced.
+    // so we take the ratio with the total number / the difference in above and below cases.
+    private final LatticeState state;
+    private final int slot;
 
     // Helper method to increment a counter array based on kValues bounds
     // Returns true if increment was successful, false if we've wrapped around completely
@@ -95,224 +58,206 @@ public class Node {
         return true;
     }
 
-    // makes all our nodes and populates the map
-    public static HashMap<Integer, Node> makeNodes(final Integer[] kVals, final int numClasses) {
-
-        final int dimension = kVals.length;
-        final HashMap<Integer, Node> nodes = new HashMap<Integer, Node>();
-
-        final Integer[] kValsToMakeNode = Util.counterInitializer(kVals);
-
-        // iterate through all the digits, and make all the nodes. 
-        int lastNodeID = 0;
-        while (incrementCounter(kValsToMakeNode, kVals)) {
-            // just make a new node and put it in the map.
-            nodes.put(Node.hash(kValsToMakeNode),
-                    new Node(kValsToMakeNode,
-                            numClasses,
-                            dimension,
-                            lastNodeID++));
-        }
-
-        // re initialize so we can copy paste
-        final Integer[] finalKValsToMakeNode = Util.counterInitializer(kVals);
-        while (incrementCounter(finalKValsToMakeNode, kVals)) {
-            final Node temp = nodes.get(hash(finalKValsToMakeNode));
-            temp.findExpansions(nodes, dimension);
-        }
-
-        // now we do a BFS both up and down, and determine whether each node is reachable from each node.
-        nodes.values().parallelStream().forEach(node -> {
-            node.reachableNodesAbove = node.findAllNodesReachable(true);
-            node.aboveUmbrellaCases = node.reachableNodesAbove.getCardinality();
-            node.reachableNodesBelow = node.findAllNodesReachable(false);
-            node.underneathUmbrellaCases = node.reachableNodesBelow.getCardinality();
-        });
-
-        return nodes;
+    // builds the lattice. the umbrellas are counted from dominance boxes over the lattice, so there is nothing to precompute per node.
+    public static Lattice makeNodes(final Integer[] kVals, final int numClasses) {
+        return new Lattice(kVals, numClasses);
     }
 
-    // does a BFS from each node, updating rankings as we go. Ranking our umbrella size and the minimum classifications.
+    // re-ranks the given nodes from the umbrella index. Ranking our umbrella size and the minimum classifications.
     public static void updateAllNodeRankings(final ArrayList<Node> aliveNodes,
                                              final BalanceRatio balanceRatio,
                                              final int numClasses,
                                              final PermeationStats statsFromLastUpdate,
-                                             final HashMap<Integer, Node> allNodesToTheirIDsMap) {
+                                             final Lattice lattice) {
 
         // this would happen on the FIRST question asked of the day.
         if (statsFromLastUpdate == null)
             return;
 
-        final RoaringBitmap nodesConfirmed = statsFromLastUpdate.nodesConfirmed;
-        final RoaringBitmap nodesUpdated = statsFromLastUpdate.nodesWithBoundChanges;
-
-        // for all nodes, if they weren't confirmed, we are going to remove confirmed from their list, and remove nodes which
-        // they can no longer update.
-        aliveNodes.stream()
-                .filter(node -> !nodesConfirmed.contains(node.nodeID))
-                .parallel()
-                .forEach(node -> {
-                    node.removeConfirmedNodesFromReachableSet(nodesConfirmed);
-                    if (nodesUpdated.contains(node.nodeID)){
-                        node.cleanOwnReachableSets(allNodesToTheirIDsMap);
-                    }
-                    node.removeUpdatedNodesFromReachableSet(nodesUpdated, allNodesToTheirIDsMap);
-                    node.totalUmbrellaCases = node.aboveUmbrellaCases + node.underneathUmbrellaCases;
-                });
-
-        final RoaringBitmap[] nodesThatWouldConfirmForEachClassCountingUpwards = new RoaringBitmap[numClasses];
-        for (int i = 0; i < numClasses; i++) {
-            nodesThatWouldConfirmForEachClassCountingUpwards[i] = new RoaringBitmap();
-        }
-        final RoaringBitmap[] nodesThatWouldConfirmForEachClassCountingDownwards = new RoaringBitmap[numClasses];
-        for (int i = 0; i < numClasses; i++) {
-            nodesThatWouldConfirmForEachClassCountingDownwards[i] = new RoaringBitmap();
-        }
-
-        // determine whether each node is going to be confirmed for each class, counting both up and downwards
-        for (final Node n : aliveNodes) {
+        // every permeation refreshes the index once it's built, so it's already up to date with the state here.
+        final UmbrellaIndex umbrellaIndex = lattice.getUmbrellaIndex();
 
-            if (n.classification.equals(IMPOSSIBLE_CLASSIFICATION))
-               continue;
+        aliveNodes.parallelStream().forEach(node -> updateNodeRanking(node, balanceRatio, numClasses, umbrellaIndex));
+    }
 
-            for (int classification = n.classification; classification <= n.maxPossibleValue; classification++) {
-                // flag whether this node would be confirmed for each class or not, counting both up and down
-                if (n.wouldBeConfirmedForClass(classification, true)) {
-                    nodesThatWouldConfirmForEachClassCountingUpwards[classification].add(n.nodeID);
-                }
+    // re-ranks one node from the umbrella index, which has to be up to date already. safe to run on many nodes at once.
+    public static void updateNodeRanking(final Node node,
+                                         final BalanceRatio balanceRatio,
+                                         final int numClasses,
+                                         final UmbrellaIndex umbrellaIndex) {
+        final LatticeState state = node.state;
+        final int id = node.nodeID;
+        final int floor = state.floor(id);
+        final int ceiling = state.ceiling(id);
+
+        // impossible nodes have nothing to tell us.
+        if (floor == IMPOSSIBLE_CLASSIFICATION) {
+            state.aboveUmbrellaCases[id] = 0;
+            state.underneathUmbrellaCases[id] = 0;
+            return;
+        }
 
-                if (n.wouldBeConfirmedForClass(classification, false)) {
-                    nodesThatWouldConfirmForEachClassCountingDownwards[classification].add(n.nodeID);
-                }
-            }
+        state.aboveUmbrellaCases[id] = umbrellaIndex.aboveUmbrellaCases(id);
+        state.underneathUmbrellaCases[id] = umbrellaIndex.underneathUmbrellaCases(id);
+
+        // of the classes we can still be, only giving us our ceiling confirms anything above, and only giving us our floor confirms
+        // anything below. everything in between confirms nobody. the classes we can't be anymore are NOT_SET.
+        final int above = umbrellaIndex.confirmationsAboveAtCeiling(id);
+        final int below = umbrellaIndex.confirmationsBelowAtFloor(id);
+        state.classesRuledOut[id] = numClasses - Math.max(0, ceiling - floor + 1);
+        if (floor == ceiling) {
+            state.fewerPossibleConfirmations[id] = 0;
+            state.morePossibleConfirmations[id] = above + below;
+        }
+        else {
+            state.fewerPossibleConfirmations[id] = Math.min(above, below);
+            state.morePossibleConfirmations[id] = Math.max(above, below);
         }
 
-        aliveNodes.stream()
-                .filter(node -> !Objects.equals(node.classification, IMPOSSIBLE_CLASSIFICATION))
-                .parallel()
-                .forEach(node -> {
-                    Arrays.fill(node.possibleConfirmationsByClass, NOT_SET);
-                    for (int classification = node.classification; classification <= node.maxPossibleValue; classification++) {
-                        node.possibleConfirmationsByClass[classification] = 0;
-                    }
-
-                    // now we must have each node go through the nodesThatWouldConfirm for each class, and increment their counts in these cases:
-                    // if the target node is in reachableBelow for a given node, we check if it would be confirmed counting downards for each class
-                    // if the target node is above, we check if it would be confirmed counting upwards for each class which our node can still be.
-                    node.updateConfirmationStats(nodesThatWouldConfirmForEachClassCountingUpwards, true);
-                    node.updateConfirmationStats(nodesThatWouldConfirmForEachClassCountingDownwards, false);
-                    Arrays.sort(node.possibleConfirmationsByClass);
-
-                    // compute the new magnitude of above and below umbrella case vector
-                    node.umbrellaMagnitude = node.computeUmbrellaMagnitude();
-                    node.balanceRatio = balanceRatio.computeBalanceRatio(node);
-                });
+        // compute the new magnitude of above and below umbrella case vector
+        state.umbrellaMagnitudes[id] = node.computeUmbrellaMagnitude();
+        state.balanceRatios[id] = balanceRatio.computeBalanceRatio(node);
     }
 
-    // takes in a datapoint, and makes a copy of that and stores that as our "point"
-    private Node(final Integer[] datapoint,
-                 final int numClasses,
-                 final int dimension,
-                 final int nodeID) {
+    // nodes are only made by the lattice, which owns the state they are a view of.
+    Node(final Integer[] datapoint,
+         final Lattice lattice,
+         final int nodeID) {
         // copy the passed in datapoint to this node's point.
         this.values = Arrays.copyOf(datapoint, datapoint.length);
+        this.sum = sumUpDataPoint();
+        this.nodeID = nodeID;
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.slot = nodeID;
+    }
 
-        // set classification to 0.
-        this.classification = 0;
-        this.classificationConfirmed = false;
+    // makes a detached copy of a node. it gets a fresh, unclassified state of its own and has no expansions.
+    public Node(final Node n) {
+        this.values = Arrays.copyOf(n.values, n.values.length);
+        this.sum = n.sum;
+        this.nodeID = n.nodeID;
+        this.lattice = null;
+        this.state = new LatticeState(1, n.state.numClasses);
+        this.slot = 0;
+    }
+
+    public int getClassification() {
+        return state.floor(slot);
+    }
 
-        this.upExpansions = new Node[dimension];
-        this.downExpansions = new Node[dimension];
+    public void setClassification(final int classification) {
+        state.setFloor(slot, classification);
+    }
 
-        // Set the maximum possible classification value from Main
-        this.maxPossibleValue = numClasses - 1;
+    // highest possible class this node can have. comes from above during interview.
+    public int getMaxPossibleValue() {
+        return state.ceiling(slot);
+    }
 
-        this.totalUmbrellaCases = 0;
-        this.underneathUmbrellaCases = 0;
-        this.aboveUmbrellaCases = 0;
+    // used when our lower bound and upperbound are the same. (or we've just asked the expert.)
+    // once it's confirmed, we don't need to ask a question of course
+    public boolean isClassificationConfirmed() {
+        return state.isConfirmed(slot);
+    }
 
-        this.possibleConfirmationsByClass = new Integer[numClasses];
-        Arrays.fill(this.possibleConfirmationsByClass, 0);
-        this.balanceRatio = 0.0f;
+    public void setClassificationConfirmed(final boolean confirmed) {
+        state.setConfirmed(slot, confirmed);
+    }
 
-        this.sum = sumUpDataPoint();
-        this.nodeID = nodeID;
+    public int getAboveUmbrellaCases() {
+        return state.aboveUmbrellaCases(slot);
     }
 
-    public Node(final Node n) {
-        this(n.values, n.maxPossibleValue + 1, n.upExpansions.length, n.nodeID);
+    public int getUnderneathUmbrellaCases() {
+        return state.underneathUmbrellaCases(slot);
     }
 
-    private void findExpansions(final HashMap<Integer, Node> nodes, final int dimension) {
+    public int getTotalUmbrellaCases() {
+        return getAboveUmbrellaCases() + getUnderneathUmbrellaCases();
+    }
 
-        //  computation of expansions for each attribute
-        IntStream.range(0, dimension).forEach(attribute -> {
-            final Integer[] key = Arrays.copyOf(values, values.length);
+    public double getBalanceRatio() {
+        return state.balanceRatio(slot);
+    }
 
-            // increment the value of key at this attribute, so we can find the one with + 1 in this digit.
-            key[attribute]++;
-            upExpansions[attribute] = nodes.get(hash(key));
+    public double getUmbrellaMagnitude() {
+        return state.umbrellaMagnitude(slot);
+    }
 
-            // decrement by 2 to find the one with -1 in this attribute.
-            key[attribute] -= 2;
-            downExpansions[attribute] = nodes.get(hash(key));
-        });
+    // hypothetically compute how many confirmations we would get by assigning this node to each class. these are sorted, so i = 0 is the worst case.
+    public int getPossibleConfirmations(final int i) {
+        return state.possibleConfirmations(slot, i);
+    }
+
+    public int getNumClasses() {
+        return state.numClasses;
+    }
+
+    // the direct neighbors that are up by one in each attribute. null if it is not valid to increase the attribute at that index by one
+    public Node[] getUpExpansions() {
+        return findExpansions(true);
     }
 
+    // direct neighbors downwards
+    public Node[] getDownExpansions() {
+        return findExpansions(false);
+    }
+
+    // neighbors are found through the lattice's stride arithmetic, no key copying or hashing required.
+    private Node[] findExpansions(final boolean upwards) {
+        final Node[] expansions = new Node[values.length];
+        if (lattice == null)
+            return expansions;
+
+        for (int attribute = 0; attribute < expansions.length; attribute++) {
+            final int neighborID = upwards
+                    ? lattice.upNeighborID(nodeID, attribute)
+                    : lattice.downNeighborID(nodeID, attribute);
+            expansions[attribute] = neighborID == Lattice.NO_NEIGHBOR ? null : lattice.getNode(neighborID);
+        }
+        return expansions;
+    }
 
     private PermeationStats expand(final int bound, final boolean countUpwards) {
-        // BFS-based expansion to set ceiling of below nodes, and floor of above nodes.
-        final Queue<Node> queue = new LinkedList<>();
-        final Set<Node> visited = new HashSet<>();
+        // the nodes a classification can move are exactly the unconfirmed ones in our up-set whose floor is below it (or in our down-set,
+        // whose ceiling is above it). floors never go down as we go up, and ceilings never go up as we go down, so anything in between
+        // us and one of those needs moving as well. that makes it the same set a BFS out from us would reach, without walking there.
+        // so it's just the box from the attribute slices, minus the confirmed nodes, filtered by bound, written straight into the state.
+        //
+        // that does reach past confirmed and impossible nodes, where a BFS would have stopped. past a confirmed node there's nothing
+        // left to move, its own expansion got there first. past an impossible one (from a >= box or a <= box alike) there can be,
+        // since monotonicity is over the order of the values, not over paths of possible nodes: anything above us has to be at least
+        // our class, whatever sits in between. it's the same way Lattice.permeateClassifications and the expert adjustments pass
+        // bounds through impossible regions. the impossible nodes themselves are confirmed, so they're never in the box.
         final RoaringBitmap nodesConfirmed = new RoaringBitmap();
         final RoaringBitmap nodesWithBoundChanges = new RoaringBitmap();
-        int numberOfNodesTouched = 0;
-        queue.add(this);
-        visited.add(this);
-
-        while (!queue.isEmpty()) {
 
-            final Node current = queue.poll();
-            // Skip if current node is already confirmed - we've already processed its implications
-            if (current.classificationConfirmed) {
-                continue;
-            }
-            final Node[] neighbors = countUpwards
-                    ? current.upExpansions
-                    : current.downExpansions;
-
-            for (final Node neighbor : neighbors) {
-                if (countUpwards) {
-                    // if we have a neighbor, who needs their floor raised, where we haven't been, and importantly, WHO IS NOT CONFIRMED.
-                    final boolean neighborNeedsUpdate = neighbor != null && !neighbor.classificationConfirmed && neighbor.classification < bound && !visited.contains(neighbor);
-                    if (neighborNeedsUpdate) {
-                        neighbor.classification = bound;
-                        nodesWithBoundChanges.add(neighbor.nodeID);
-                        numberOfNodesTouched++;
-                        queue.add(neighbor);
-                        visited.add(neighbor);
-                    }
-                } else {
-                    final boolean neighborNeedsUpdate = neighbor != null && !neighbor.classificationConfirmed && neighbor.maxPossibleValue > bound && !visited.contains(neighbor);
-                    if (neighborNeedsUpdate) {
-                        neighbor.maxPossibleValue = bound;
-                        nodesWithBoundChanges.add(neighbor.nodeID);
-                        numberOfNodesTouched++;
-                        queue.add(neighbor);
-                        visited.add(neighbor);
-                    }
+        if (lattice != null) {
+            final RoaringBitmap box = countUpwards
+                    ? lattice.attributeSlices.unconfirmedUpSet(nodeID)
+                    : lattice.attributeSlices.unconfirmedDownSet(nodeID);
+
+            // we're in our own box, but our bounds were already set to the new classification, so we never pass the filter.
+            box.forEach((final int id) -> {
+                if (countUpwards && state.floor(id) < bound) {
+                    state.setFloor(id, bound);
+                    nodesWithBoundChanges.add(id);
+                } else if (!countUpwards && state.ceiling(id) > bound) {
+                    state.setCeiling(id, bound);
+                    nodesWithBoundChanges.add(id);
                 }
-            }
+            });
         }
+        final int numberOfNodesTouched = nodesWithBoundChanges.getCardinality();
 
         // Confirm nodes after propagation - check if floor equals ceiling
-        for (final Node node : visited) {
-            final boolean nodeWasConfirmed = Objects.equals(node.classification, node.maxPossibleValue) && node != this;
-            if (nodeWasConfirmed) {
-                node.classificationConfirmed = true;
-                nodesConfirmed.add(node.nodeID);
+        nodesWithBoundChanges.forEach((final int id) -> {
+            if (state.floor(id) == state.ceiling(id)) {
+                state.setConfirmed(id, true);
+                nodesConfirmed.add(id);
             }
-        }
+        });
 
         int numberOfNodesTouchedAbove = 0;
         int numberOfNodesTouchedBelow = 0;
@@ -331,151 +276,38 @@ public class Node {
     // each node gets this new classification. it sends the effects of the classification up and down. (not just within one HC, but to all expansions up and down.)
     public PermeationStats permeateClassification(final int newClassification) {
 
-        if (newClassification < this.classification && newClassification != IMPOSSIBLE_CLASSIFICATION) {
-            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too low for min possible value of %s", newClassification, this.classification));
+        final int classification = getClassification();
+        final int maxPossibleValue = getMaxPossibleValue();
+        if (newClassification < classification && newClassification != IMPOSSIBLE_CLASSIFICATION) {
+            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too low for min possible value of %s", newClassification, classification));
         }
-        if (newClassification > this.maxPossibleValue && newClassification != IMPOSSIBLE_CLASSIFICATION) {
-            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too high for max possible value of %s", newClassification, this.maxPossibleValue));
+        if (newClassification > maxPossibleValue && newClassification != IMPOSSIBLE_CLASSIFICATION) {
+            throw new IllegalStateException(String.format("MONOTONICITY VIOLATION. Value %s assigned is too high for max possible value of %s", newClassification, maxPossibleValue));
         }
 
         // lock in our nodes value
-        this.classification = newClassification;
-        this.maxPossibleValue = this.classification;
+        state.setFloor(slot, newClassification);
+        state.setCeiling(slot, newClassification);
 
         // Set the floor of everyone above to AT LEAST this value
-        final PermeationStats aboveStats = expand(this.classification, true);
+        final PermeationStats aboveStats = expand(newClassification, true);
 
         // Set the ceiling of everyone below to AT MOST this value
-        final PermeationStats belowStats = expand(this.classification, false);
+        final PermeationStats belowStats = expand(newClassification, false);
 
         // get our final stats
         final PermeationStats finalStats = new PermeationStats(aboveStats, belowStats);
         // this node itself was confirmed because we asked about it directly.
-        this.classificationConfirmed = true;
+        state.setConfirmed(slot, true);
         finalStats.nodesConfirmed.add(this.nodeID);
+        if (lattice != null) {
+            lattice.refreshIndexes(finalStats.nodesConfirmed, finalStats.nodesWithBoundChanges);
+        }
 
         // return our stats from this permeation.
         return finalStats;
     }
 
-    private void removeConfirmedNodesFromReachableSet(final RoaringBitmap nodesThatGotConfirmed) {
-        this.reachableNodesBelow.andNot(nodesThatGotConfirmed);
-        this.reachableNodesAbove.andNot(nodesThatGotConfirmed);
-
-        // updating here even though it is kind of redundant since we also do it after updating the reachable set
-        this.aboveUmbrellaCases = this.reachableNodesAbove.getCardinality();
-        this.underneathUmbrellaCases = this.reachableNodesBelow.getCardinality();
-    }
-
-    private void removeUpdatedNodesFromReachableSet(final RoaringBitmap nodesWithBoundChanges,
-                                                    final Map<Integer, Node> nodeByID) {
-        final RoaringBitmap toRemoveFromAbove = new RoaringBitmap();
-        final RoaringBitmap toRemoveFromBelow = new RoaringBitmap();
-        final RoaringBitmap relevantAbove = RoaringBitmap.and(nodesWithBoundChanges, this.reachableNodesAbove);
-        final RoaringBitmap relevantBelow = RoaringBitmap.and(nodesWithBoundChanges, this.reachableNodesBelow);
-
-        relevantAbove.forEach((final int updatedNodeID) -> {
-            final Node updatedNode = nodeByID.get(updatedNodeID);
-            if (updatedNode != null && this.maxPossibleValue <= updatedNode.classification) {
-                toRemoveFromAbove.add(updatedNodeID);
-            }
-        });
-
-        relevantBelow.forEach((final int updatedNodeID) -> {
-            final Node updatedNode = nodeByID.get(updatedNodeID);
-            if (updatedNode != null && this.classification >= updatedNode.maxPossibleValue) {
-                toRemoveFromBelow.add(updatedNodeID);
-            }
-        });
-
-        this.reachableNodesAbove.andNot(toRemoveFromAbove);
-        this.reachableNodesBelow.andNot(toRemoveFromBelow);
-
-        this.aboveUmbrellaCases = this.reachableNodesAbove.getCardinality();
-        this.underneathUmbrellaCases = this.reachableNodesBelow.getCardinality();
-    }
-
-    // For updated nodes: check all nodes in MY reachable sets
-    private void cleanOwnReachableSets(final Map<Integer, Node> nodeByID) {
-        final RoaringBitmap toRemoveAbove = new RoaringBitmap();
-        final RoaringBitmap toRemoveBelow = new RoaringBitmap();
-
-        this.reachableNodesAbove.forEach((final int nodeID) -> {
-            final Node other = nodeByID.get(nodeID);
-            if (other != null && this.maxPossibleValue <= other.classification) {
-                toRemoveAbove.add(nodeID);
-            }
-        });
-
-        this.reachableNodesBelow.forEach((final int nodeID) -> {
-            final Node other = nodeByID.get(nodeID);
-            if (other != null && this.classification >= other.maxPossibleValue) {
-                toRemoveBelow.add(nodeID);
-            }
-        });
-
-        this.reachableNodesAbove.andNot(toRemoveAbove);
-        this.reachableNodesBelow.andNot(toRemoveBelow);
-        this.aboveUmbrellaCases = this.reachableNodesAbove.getCardinality();
-        this.underneathUmbrellaCases = this.reachableNodesBelow.getCardinality();
-    }
-
-
-    private void updateConfirmationStats(final RoaringBitmap[] nodesThatWouldConfirmForEachClass,
-                                         final boolean countUpwards) {
-
-        final RoaringBitmap reachableNodes = countUpwards
-                ? this.reachableNodesAbove
-                : this.reachableNodesBelow;
-
-        for (int hypotheticalClass = this.classification; hypotheticalClass <= this.maxPossibleValue; hypotheticalClass++) {
-            this.possibleConfirmationsByClass[hypotheticalClass] += RoaringBitmap.andCardinality(reachableNodes, nodesThatWouldConfirmForEachClass[hypotheticalClass]);
-        }
-    }
-
-    // builds the reachable set when we create a node, does this by doing a BFS to all possible nodes both up and down
-    private RoaringBitmap findAllNodesReachable(final boolean upWardsUmbrella) {
-        final RoaringBitmap reachableNodes = new RoaringBitmap();
-        final Queue<Node> queue = new LinkedList<>();
-        final Set<Integer> visited = new HashSet<>();
-        queue.add(this);
-        visited.add(this.nodeID);
-
-        while (!queue.isEmpty()) {
-            final Node current = queue.poll();
-            final Node[] neighbors = upWardsUmbrella
-                    ? current.upExpansions
-                    : current.downExpansions;
-
-            for (final Node neighbor : neighbors) {
-                if (neighbor != null && !visited.contains(neighbor.nodeID)) {
-                    reachableNodes.add(neighbor.nodeID);
-                    visited.add(neighbor.nodeID);
-                    queue.add(neighbor);
-                }
-            }
-        }
-        return reachableNodes;
-    }
-
-    // determines if a neighbor would get confirmed if it's upstairs or downstairs neighbor were given "hypotheticalClass"
-    private boolean wouldBeConfirmedForClass(final int hypotheticalClass, final boolean countingUpwards) {
-        // return false if we're already confirmed.
-        if (this.classificationConfirmed) {
-            return false;
-        }
-
-        // if we are counting upwards. this is ABOVE the node which called this on us.
-        if (countingUpwards) {
-            // if the neighbor got confirmed as hypothetical class, we would be confirmed, if that hypothetical class was already our max possible value.
-            return this.maxPossibleValue == hypotheticalClass;
-        }
-        // if we are counting downwards. this is a downstairs neighbor. our classification is already set as the lowerbound. so if our lowerbound is the same as the node above, then we are confirmed.
-        else {
-            return this.classification == hypotheticalClass;
-        }
-    }
-
     public int computeHammingDistance(final Node other) {
         int distance = 0;
         for (int i = 0; i < this.values.length; i++) {
@@ -504,6 +336,10 @@ public class Node {
     }
 
     public double computeUmbrellaMagnitude() {
+        return computeUmbrellaMagnitude(getAboveUmbrellaCases(), getUnderneathUmbrellaCases());
+    }
+
+    public static double computeUmbrellaMagnitude(final int aboveUmbrellaCases, final int underneathUmbrellaCases) {
         return Math.sqrt(Math.pow(aboveUmbrellaCases, 2) + Math.pow(underneathUmbrellaCases, 2));
     }
 
@@ -516,9 +352,10 @@ public class Node {
         return sum;
     }
 
+    // the node ID is the mixed radix rank of our values, so it is already a perfect hash within a lattice.
     @Override
     public int hashCode() {
-        return hash(this.values);
+        return nodeID;
     }
 
     @Override
@@ -529,7 +366,7 @@ public class Node {
             return false;
 
         final Node node = (Node) obj;
-        return Arrays.equals(values, node.values);
+        return nodeID == node.nodeID && Arrays.equals(values, node.values);
     }
 
     public String toString() {
@@ -537,11 +374,11 @@ public class Node {
         s.append("DATAPOINT:\n\t");
         s.append(Arrays.toString(values)).append("\n");
 
-        s.append("CLASSIFICATION:\t").append(classification).append("\n");
+        s.append("CLASSIFICATION:\t").append(getClassification()).append("\n");
 
         if (DEBUG_PRINTING) {
             s.append("UP EXPANSIONS:\n");
-            for (final Node t : upExpansions) {
+            for (final Node t : getUpExpansions()) {
                 if (t == null)
                     s.append("\tNULL\n");
 
@@ -550,7 +387,7 @@ public class Node {
             }
 
             s.append("DOWN EXPANSIONS:\n");
-            for (final Node t : downExpansions) {
+            for (final Node t : getDownExpansions()) {
                 if (t == null)
                     s.append("\tNULL\n");
 
@@ -558,14 +395,14 @@ public class Node {
                     s.append("\t").append(Arrays.toString(t.values)).append("\n");
             }
 
-            s.append("CLASSIFICATION CONFIRMED? :").append(classificationConfirmed ? "\tYES\n" : "\tNO\n");
-            s.append("TOTAL UMBRELLA SIZE:\t").append(totalUmbrellaCases).append("\n");
-            s.append("UNDER UMBRELLA SIZE:\t").append(underneathUmbrellaCases).append("\n");
-            s.append("ABOVE UMBRELLA SIZE:\t").append(aboveUmbrellaCases).append("\n");
+            s.append("CLASSIFICATION CONFIRMED? :").append(isClassificationConfirmed() ? "\tYES\n" : "\tNO\n");
+            s.append("TOTAL UMBRELLA SIZE:\t").append(getTotalUmbrellaCases()).append("\n");
+            s.append("UNDER UMBRELLA SIZE:\t").append(getUnderneathUmbrellaCases()).append("\n");
+            s.append("ABOVE UMBRELLA SIZE:\t").append(getAboveUmbrellaCases()).append("\n");
 
             s.append("POSSIBLE CONFIRMATIONS:\n");
-            for (int i = 0; i < possibleConfirmationsByClass.length; i++) {
-                s.append("\tClass: ").append(i).append(": ").append(possibleConfirmationsByClass[i]).append("\n");
+            for (int i = 0; i < getNumClasses(); i++) {
+                s.append("\tClass: ").append(i).append(": ").append(getPossibleConfirmations(i)).append("\n");
             }
 
         }
@@ -60,8 +60,15 @@ public class PythonInterpreter implements AutoCloseable {
     // ---------------------------------------------------------------------------
 
     public List<Integer> predict(final List<Node> nodesToPredict) {
+        return predictValues(nodesToPredict.stream()
+                .map(node -> node.values)
+                .toList());
+    }
+
+    // same as predict, for datapoints which don't have a Node, like the ones in a sparse lattice.
+    public List<Integer> predictValues(final List<Integer[]> datapointsToPredict) {
         try {
-            final String json = serializeNodes(nodesToPredict);
+            final String json = serializeDatapoints(datapointsToPredict);
             stdin.write(json);
             stdin.newLine();
             stdin.flush();
@@ -100,12 +107,12 @@ public class PythonInterpreter implements AutoCloseable {
     // Serialization
     // ---------------------------------------------------------------------------
 
-    private static String serializeNodes(final List<Node> nodes) {
+    private static String serializeDatapoints(final List<Integer[]> datapoints) {
         final StringBuilder sb = new StringBuilder();
         sb.append("{\"").append(VALUES_KEY).append("\":[");
-        for (int i = 0; i < nodes.size(); i++) {
-            sb.append(Arrays.toString(nodes.get(i).values));
-            if (i < nodes.size() - 1) sb.append(",");
+        for (int i = 0; i < datapoints.size(); i++) {
+            sb.append(Arrays.toString(datapoints.get(i)));
+            if (i < datapoints.size() - 1) sb.append(",");
         }
         sb.append("]}");
         return sb.toString();
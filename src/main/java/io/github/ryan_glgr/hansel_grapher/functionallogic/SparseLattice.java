@@ -0,0 +1,304 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+// a lattice for k values whose product is far too big to make every node of, like a dataset normalized at full integer resolution.
+// nothing exists until an interview touches it: the nodes we ask about, the chains we search them on, and anything we read the bounds of.
+// each of those is materialized on first touch and handed the next ID, so the IDs stay dense no matter how big the lattice is.
+// the IDs are longs, but the values, cached bounds and border slices of materialized nodes are all indexed by int, so at most
+// 2^31 - 1 nodes can ever be materialized. past that, Math.toIntExact throws.
+//
+// the bounds of a node which was never touched are not stored anywhere. they are implied by the borders of what we've been told so far:
+// the floor is the highest class with a known node <= us, and the ceiling the lowest class with a known node >= us. each border is
+// sliced by attribute, so that takes a few lookups and ANDs per class rather than a pass over every answer.
+// materialized nodes cache their bounds, and only go back to the borders once another answer has come in.
+//
+// not thread safe.
+public class SparseLattice {
+
+    public final Integer[] kVals;
+    public final int numClasses;
+
+    // values of each materialized node, indexed by ID, and the way back.
+    private final List<Integer[]> valuesByID = new ArrayList<>();
+    private final Map<List<Integer>, Long> idByValues = new HashMap<>();
+
+    // cached bounds of each materialized node, and how many answers they had seen when they were cached.
+    private int[] floors = new int[1024];
+    private int[] ceilings = new int[1024];
+    private int[] answersSeen = new int[1024];
+
+    // how many answers we've been given.
+    private int numberOfAnswers = 0;
+
+    // lowBorder[c] is the minimal known nodes which are >= class c, highBorder[c] the maximal known nodes which are <= class c.
+    // each is an antichain, so a node dominated by one already on there is never added.
+    private final List<Border> lowBorder;
+    private final List<Border> highBorder;
+
+    private final Roaring64Bitmap asked = new Roaring64Bitmap();
+    private final Roaring64Bitmap confirmed = new Roaring64Bitmap();
+
+    public SparseLattice(final Integer[] kVals, final int numClasses) {
+        if (numClasses < 1) {
+            throw new IllegalArgumentException(String.format("Number of classes must be positive. Got: %d", numClasses));
+        }
+        for (final Integer kVal : kVals) {
+            if (kVal < 1) {
+                throw new IllegalArgumentException(String.format("k values must be positive. Got: %s", Arrays.toString(kVals)));
+            }
+        }
+        this.kVals = kVals;
+        this.numClasses = numClasses;
+        this.lowBorder = new ArrayList<>(numClasses);
+        this.highBorder = new ArrayList<>(numClasses);
+        for (int classification = 0; classification < numClasses; classification++) {
+            lowBorder.add(new Border(true));
+            highBorder.add(new Border(false));
+        }
+    }
+
+    // how many nodes there would be if we made them all. only for reporting, this can be well past a long.
+    public BigInteger size() {
+        return Arrays.stream(kVals)
+                .map(BigInteger::valueOf)
+                .reduce(BigInteger.ONE, BigInteger::multiply);
+    }
+
+    public int dimension() {
+        return kVals.length;
+    }
+
+    public long materializedCount() {
+        return valuesByID.size();
+    }
+
+    // the ID of this datapoint, making it if nobody has touched it yet.
+    public long materialize(final Integer[] values) {
+        final List<Integer> key = Arrays.asList(values);
+        final Long existing = idByValues.get(key);
+        if (existing != null)
+            return existing;
+
+        if (values.length != kVals.length) {
+            throw new IllegalArgumentException(String.format("Datapoint %s does not have %d attributes.", Arrays.toString(values), kVals.length));
+        }
+        for (int attribute = 0; attribute < kVals.length; attribute++) {
+            if (values[attribute] < 0 || values[attribute] >= kVals[attribute]) {
+                throw new IllegalArgumentException(String.format("Datapoint %s is outside of k values %s.", Arrays.toString(values), Arrays.toString(kVals)));
+            }
+        }
+
+        final Integer[] copy = Arrays.copyOf(values, values.length);
+        final int id = valuesByID.size();
+        valuesByID.add(copy);
+        idByValues.put(Arrays.asList(copy), (long) id);
+
+        if (id == floors.length) {
+            floors = Arrays.copyOf(floors, id * 2);
+            ceilings = Arrays.copyOf(ceilings, id * 2);
+            answersSeen = Arrays.copyOf(answersSeen, id * 2);
+        }
+        // a new node starts from the borders, which already account for every answer so far.
+        floors[id] = impliedFloor(copy, 0, numClasses - 1);
+        ceilings[id] = impliedCeiling(copy, floors[id], numClasses - 1);
+        answersSeen[id] = numberOfAnswers;
+        if (floors[id] == ceilings[id]) {
+            confirmed.addLong(id);
+        }
+        return id;
+    }
+
+    // the Hansel chain through this node, materialized, bottom to top.
+    public long[] hanselChainOf(final long nodeID) {
+        return HanselChains.chainThrough(values(nodeID), kVals)
+                .stream()
+                .mapToLong(this::materialize)
+                .toArray();
+    }
+
+    public Integer[] values(final long nodeID) {
+        return Arrays.copyOf(valuesByID.get(Math.toIntExact(nodeID)), kVals.length);
+    }
+
+    public int floor(final long nodeID) {
+        return catchUp(nodeID).floor;
+    }
+
+    public int ceiling(final long nodeID) {
+        return catchUp(nodeID).ceiling;
+    }
+
+    public boolean isConfirmed(final long nodeID) {
+        catchUp(nodeID);
+        return confirmed.contains(nodeID);
+    }
+
+    public boolean wasAsked(final long nodeID) {
+        return asked.contains(nodeID);
+    }
+
+    public long numberAsked() {
+        return asked.getLongCardinality();
+    }
+
+    // records the answer for this node. it has to fit in what we already know, otherwise the function isn't monotone.
+    public void classify(final long nodeID, final int classification) {
+        final Bounds bounds = catchUp(nodeID);
+        if (classification < bounds.floor || classification > bounds.ceiling) {
+            throw new IllegalArgumentException(String.format("Classification %d of %s violates monotonicity. It must be between %d and %d.",
+                    classification, Arrays.toString(valuesByID.get(Math.toIntExact(nodeID))), bounds.floor, bounds.ceiling));
+        }
+        numberOfAnswers++;
+        asked.addLong(nodeID);
+
+        for (int c = 1; c <= classification; c++) {
+            lowBorder.get(c).add(nodeID);
+        }
+        for (int c = classification; c < numClasses - 1; c++) {
+            highBorder.get(c).add(nodeID);
+        }
+        catchUp(nodeID);
+    }
+
+    // the minimal nodes we know to be at least each class. these are the low units of whatever we've learned so far.
+    public Map<Integer, List<Integer[]>> getLowUnitsByClass() {
+        final Map<Integer, List<Integer[]>> lowUnitsByClass = new HashMap<>();
+        for (int classification = 1; classification < numClasses; classification++) {
+            lowUnitsByClass.put(classification, lowBorder.get(classification).slotByMember.keySet().stream()
+                    .map(this::values)
+                    .toList());
+        }
+        return lowUnitsByClass;
+    }
+
+    private record Bounds(int floor, int ceiling) {}
+
+    // goes back to the borders if an answer has come in since this node last looked.
+    private Bounds catchUp(final long nodeID) {
+        final int id = Math.toIntExact(nodeID);
+        if (answersSeen[id] < numberOfAnswers && !confirmed.contains(nodeID)) {
+            final Integer[] values = valuesByID.get(id);
+            floors[id] = impliedFloor(values, floors[id], ceilings[id]);
+            ceilings[id] = impliedCeiling(values, floors[id], ceilings[id]);
+            if (floors[id] == ceilings[id]) {
+                confirmed.addLong(nodeID);
+            }
+        }
+        answersSeen[id] = numberOfAnswers;
+        return new Bounds(floors[id], ceilings[id]);
+    }
+
+    // the bounds only ever close in, so only the classes between the ones we already know need looking at.
+    private int impliedFloor(final Integer[] values, final int floor, final int ceiling) {
+        for (int classification = ceiling; classification > floor; classification--) {
+            if (lowBorder.get(classification).reaches(values))
+                return classification;
+        }
+        return floor;
+    }
+
+    private int impliedCeiling(final Integer[] values, final int floor, final int ceiling) {
+        for (int classification = floor; classification < ceiling; classification++) {
+            if (highBorder.get(classification).reaches(values))
+                return classification;
+        }
+        return ceiling;
+    }
+
+    // one border, with its members sliced by attribute the way LowUnitIndex slices low units, so whether any member is under a node
+    // (or over it, for a high border) takes d lookups and ANDs, not a pass over the border. the k values can be far too big for a
+    // slice per value, so there is only one at each value a member actually has: slicesByValue[a] maps v to every member with
+    // values[a] <= v. a high border keeps its maps in reverse, so there the same lookups give the members with values[a] >= v.
+    // the slices hold each member's slot on this border rather than its ID, so they stay as small as the border is.
+    private final class Border {
+
+        private final boolean keepMinimal;
+        private final Map<Long, Integer> slotByMember = new LinkedHashMap<>();
+        private int nextSlot = 0;
+        private final List<TreeMap<Integer, RoaringBitmap>> slicesByValue = new ArrayList<>();
+
+        private Border(final boolean keepMinimal) {
+            this.keepMinimal = keepMinimal;
+            for (int attribute = 0; attribute < kVals.length; attribute++) {
+                slicesByValue.add(new TreeMap<>(keepMinimal ? Comparator.<Integer>naturalOrder() : Comparator.<Integer>reverseOrder()));
+            }
+        }
+
+        // true if a member is <= these values, for a low border, or >= them for a high one.
+        private boolean reaches(final Integer[] values) {
+            if (slotByMember.isEmpty())
+                return false;
+            RoaringBitmap reaching = null;
+            for (int attribute = 0; attribute < values.length; attribute++) {
+                final Map.Entry<Integer, RoaringBitmap> slice = slicesByValue.get(attribute).floorEntry(values[attribute]);
+                if (slice == null)
+                    return false;
+                reaching = reaching == null ? slice.getValue() : RoaringBitmap.and(reaching, slice.getValue());
+                if (reaching.isEmpty())
+                    return false;
+            }
+            return true;
+        }
+
+        // keeps the border an antichain. low borders keep the minimal nodes, high borders the maximal ones.
+        private void add(final long nodeID) {
+            final Integer[] values = valuesByID.get(Math.toIntExact(nodeID));
+            if (reaches(values))
+                return;
+            slotByMember.entrySet().removeIf(member -> {
+                final Integer[] other = valuesByID.get(Math.toIntExact(member.getKey()));
+                if (keepMinimal ? !isDominatedBy(values, other) : !isDominatedBy(other, values))
+                    return false;
+                unslice(member.getValue(), other);
+                return true;
+            });
+            slotByMember.put(nodeID, nextSlot);
+            slice(nextSlot++, values);
+        }
+
+        // puts a member in the slice at its own value, and every one past it.
+        private void slice(final int slot, final Integer[] values) {
+            for (int attribute = 0; attribute < values.length; attribute++) {
+                final TreeMap<Integer, RoaringBitmap> byValue = slicesByValue.get(attribute);
+                if (!byValue.containsKey(values[attribute])) {
+                    final Map.Entry<Integer, RoaringBitmap> before = byValue.lowerEntry(values[attribute]);
+                    byValue.put(values[attribute], before == null ? new RoaringBitmap() : before.getValue().clone());
+                }
+                byValue.tailMap(values[attribute], true).values().forEach(slice -> slice.add(slot));
+            }
+        }
+
+        // takes a member back out, along with its own slice if nothing else needs it there.
+        private void unslice(final int slot, final Integer[] values) {
+            for (int attribute = 0; attribute < values.length; attribute++) {
+                final TreeMap<Integer, RoaringBitmap> byValue = slicesByValue.get(attribute);
+                byValue.tailMap(values[attribute], true).values().forEach(slice -> slice.remove(slot));
+                final Map.Entry<Integer, RoaringBitmap> before = byValue.lowerEntry(values[attribute]);
+                if (byValue.get(values[attribute]).equals(before == null ? new RoaringBitmap() : before.getValue())) {
+                    byValue.remove(values[attribute]);
+                }
+            }
+        }
+    }
+
+    // true if lower <= upper in every attribute.
+    private static boolean isDominatedBy(final Integer[] lower, final Integer[] upper) {
+        for (int attribute = 0; attribute < lower.length; attribute++) {
+            if (lower[attribute] > upper[attribute])
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.roaringbitmap.RoaringBitmap;
+
+// answers the umbrella counts of a node (how many unconfirmed nodes above/below it one question could still update),
+// and how many of those would be confirmed outright, straight from the classification bounds in the state store.
+//
+// every unconfirmed node is a point in four dominance counters, two over up-sets and two over down-sets, keyed by its floor and its ceiling.
+// a node above n is still in n's umbrella if its floor is below n's ceiling, and a node below n is if its ceiling is above n's floor.
+// by monotonicity the nodes above n all have a ceiling >= n's, so the ones which would be confirmed by giving n its ceiling are exactly
+// those with ceiling <= n's. likewise the ones below which would be confirmed by giving n its floor are those with floor >= n's.
+// so each number is a single prefix count, and nothing has to be stored per node other than the bounds it was last indexed with.
+public class UmbrellaIndex {
+
+    private static final int NOT_INDEXED = -1;
+
+    private final Lattice lattice;
+    private final LatticeState state;
+    private final int numClasses;
+
+    private final DominanceCounter aboveByFloor;
+    private final DominanceCounter aboveByCeiling;
+    // the down-set counters are keyed by (numClasses - 1 - bound), so that "bound >= x" is a prefix as well.
+    private final DominanceCounter belowByFloor;
+    private final DominanceCounter belowByCeiling;
+
+    // the bounds each node currently sits in the counters with. NOT_INDEXED if it is confirmed or impossible.
+    private final int[] indexedFloors;
+    private final int[] indexedCeilings;
+
+    // builds the counters from whatever the state is right now.
+    UmbrellaIndex(final Lattice lattice) {
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.numClasses = state.numClasses;
+
+        this.aboveByFloor = new DominanceCounter(lattice, numClasses, true);
+        this.aboveByCeiling = new DominanceCounter(lattice, numClasses, true);
+        this.belowByFloor = new DominanceCounter(lattice, numClasses, false);
+        this.belowByCeiling = new DominanceCounter(lattice, numClasses, false);
+
+        this.indexedFloors = new int[lattice.size()];
+        this.indexedCeilings = new int[lattice.size()];
+        Arrays.fill(indexedFloors, NOT_INDEXED);
+        Arrays.fill(indexedCeilings, NOT_INDEXED);
+
+        // everyone goes in at once, and the trees are built in one linear pass each afterwards.
+        for (int nodeID = 0; nodeID < lattice.size(); nodeID++) {
+            final int floor = state.floor(nodeID);
+            final int ceiling = state.ceiling(nodeID);
+            if (!belongsInIndex(nodeID, floor, ceiling))
+                continue;
+
+            aboveByFloor.addUnbuilt(nodeID, floor);
+            aboveByCeiling.addUnbuilt(nodeID, ceiling);
+            belowByFloor.addUnbuilt(nodeID, numClasses - 1 - floor);
+            belowByCeiling.addUnbuilt(nodeID, numClasses - 1 - ceiling);
+            indexedFloors[nodeID] = floor;
+            indexedCeilings[nodeID] = ceiling;
+        }
+        Stream.of(aboveByFloor, aboveByCeiling, belowByFloor, belowByCeiling)
+                .parallel()
+                .forEach(DominanceCounter::build);
+    }
+
+    private boolean belongsInIndex(final int nodeID, final int floor, final int ceiling) {
+        return !state.isConfirmed(nodeID)
+                && floor != Node.IMPOSSIBLE_CLASSIFICATION
+                && floor <= ceiling;
+    }
+
+    // brings the given nodes up to date with the state store. safe to call again with the same nodes.
+    public void refresh(final RoaringBitmap nodeIDs) {
+        nodeIDs.forEach((final int nodeID) -> refresh(nodeID));
+    }
+
+    public void refresh(final int nodeID) {
+        final int floor = state.floor(nodeID);
+        final int ceiling = state.ceiling(nodeID);
+        final boolean belongsInIndex = belongsInIndex(nodeID, floor, ceiling);
+
+        final int newFloor = belongsInIndex ? floor : NOT_INDEXED;
+        final int newCeiling = belongsInIndex ? ceiling : NOT_INDEXED;
+        if (newFloor == indexedFloors[nodeID] && newCeiling == indexedCeilings[nodeID])
+            return;
+
+        if (indexedFloors[nodeID] != NOT_INDEXED) {
+            move(nodeID, indexedFloors[nodeID], indexedCeilings[nodeID], -1);
+        }
+        if (belongsInIndex) {
+            move(nodeID, floor, ceiling, 1);
+        }
+        indexedFloors[nodeID] = newFloor;
+        indexedCeilings[nodeID] = newCeiling;
+    }
+
+    private void move(final int nodeID, final int floor, final int ceiling, final int delta) {
+        aboveByFloor.add(nodeID, floor, delta);
+        aboveByCeiling.add(nodeID, ceiling, delta);
+        belowByFloor.add(nodeID, numClasses - 1 - floor, delta);
+        belowByCeiling.add(nodeID, numClasses - 1 - ceiling, delta);
+    }
+
+    private boolean isIndexed(final int nodeID) {
+        return indexedFloors[nodeID] != NOT_INDEXED;
+    }
+
+    // unconfirmed nodes strictly above us, whose floor we could still raise.
+    public int aboveUmbrellaCases(final int nodeID) {
+        final int ceiling = state.ceiling(nodeID);
+        final int selfCounted = isIndexed(nodeID) && indexedFloors[nodeID] < ceiling ? 1 : 0;
+        return checked(nodeID, aboveByFloor.count(nodeID, ceiling - 1) - selfCounted);
+    }
+
+    // unconfirmed nodes strictly below us, whose ceiling we could still lower.
+    public int underneathUmbrellaCases(final int nodeID) {
+        final int floor = state.floor(nodeID);
+        final int selfCounted = isIndexed(nodeID) && indexedCeilings[nodeID] > floor ? 1 : 0;
+        return checked(nodeID, belowByCeiling.count(nodeID, numClasses - 2 - floor) - selfCounted);
+    }
+
+    // unconfirmed nodes strictly above us, which would be confirmed if we were given our ceiling.
+    public int confirmationsAboveAtCeiling(final int nodeID) {
+        final int selfCounted = isIndexed(nodeID) ? 1 : 0;
+        return checked(nodeID, aboveByCeiling.count(nodeID, state.ceiling(nodeID)) - selfCounted);
+    }
+
+    // unconfirmed nodes strictly below us, which would be confirmed if we were given our floor.
+    public int confirmationsBelowAtFloor(final int nodeID) {
+        final int selfCounted = isIndexed(nodeID) ? 1 : 0;
+        return checked(nodeID, belowByFloor.count(nodeID, numClasses - 1 - state.floor(nodeID)) - selfCounted);
+    }
+
+    // the four counts of a node, as they'd be on an overlay which only differs from the state on the given nodes.
+    public record Counts(int aboveUmbrellaCases,
+                         int underneathUmbrellaCases,
+                         int confirmationsAboveAtCeiling,
+                         int confirmationsBelowAtFloor) {
+    }
+
+    // the counts of a node as they'd be on this overlay, if it only differs from the state on nodesChanged, as it does after
+    // Lattice.permeateClassification on a fresh one. each is the count from the index, less the changed nodes in our up or down set
+    // as they're indexed, plus those same nodes as the overlay has them. nothing is written, so any number of these can be worked out
+    // at once, as long as the state and the index are left alone meanwhile.
+    public Counts overlayCounts(final LatticeState.Overlay overlay, final RoaringBitmap nodesChanged, final int nodeID) {
+        final int floor = overlay.floor(nodeID);
+        final int ceiling = overlay.ceiling(nodeID);
+        int above = aboveByFloor.count(nodeID, ceiling - 1);
+        int underneath = belowByCeiling.count(nodeID, numClasses - 2 - floor);
+        int confirmationsAbove = aboveByCeiling.count(nodeID, ceiling);
+        int confirmationsBelow = belowByFloor.count(nodeID, numClasses - 1 - floor);
+
+        for (final int id : RoaringBitmap.and(lattice.attributeSlices.upSet(nodeID), nodesChanged)) {
+            if (isIndexed(id)) {
+                above -= indexedFloors[id] < ceiling ? 1 : 0;
+                confirmationsAbove -= indexedCeilings[id] <= ceiling ? 1 : 0;
+            }
+            if (belongsInOverlay(overlay, id)) {
+                above += overlay.floor(id) < ceiling ? 1 : 0;
+                confirmationsAbove += overlay.ceiling(id) <= ceiling ? 1 : 0;
+            }
+        }
+        for (final int id : RoaringBitmap.and(lattice.attributeSlices.downSet(nodeID), nodesChanged)) {
+            if (isIndexed(id)) {
+                underneath -= indexedCeilings[id] > floor ? 1 : 0;
+                confirmationsBelow -= indexedFloors[id] >= floor ? 1 : 0;
+            }
+            if (belongsInOverlay(overlay, id)) {
+                underneath += overlay.ceiling(id) > floor ? 1 : 0;
+                confirmationsBelow += overlay.floor(id) >= floor ? 1 : 0;
+            }
+        }
+
+        // by now we're counted as the overlay has us, so that's what comes off.
+        if (belongsInOverlay(overlay, nodeID)) {
+            above -= floor < ceiling ? 1 : 0;
+            underneath -= ceiling > floor ? 1 : 0;
+            confirmationsAbove--;
+            confirmationsBelow--;
+        }
+        return new Counts(checked(nodeID, above), checked(nodeID, underneath), checked(nodeID, confirmationsAbove), checked(nodeID, confirmationsBelow));
+    }
+
+    private static boolean belongsInOverlay(final LatticeState.Overlay overlay, final int nodeID) {
+        final int floor = overlay.floor(nodeID);
+        return !overlay.isConfirmed(nodeID)
+                && floor != Node.IMPOSSIBLE_CLASSIFICATION
+                && floor <= overlay.ceiling(nodeID);
+    }
+
+    // a count below zero means the node's own bounds moved without the index hearing about it, so whatever wrote them skipped
+    // Lattice.refreshIndexes.
+    private int checked(final int nodeID, final int count) {
+        if (count < 0) {
+            throw new IllegalStateException(String.format("Umbrella index is out of date for node %d, it was indexed with bounds [%d, %d] but has [%d, %d] now.",
+                    nodeID, indexedFloors[nodeID], indexedCeilings[nodeID], state.floor(nodeID), state.ceiling(nodeID)));
+        }
+        return count;
+    }
+}
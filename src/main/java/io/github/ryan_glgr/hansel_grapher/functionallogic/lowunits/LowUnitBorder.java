@@ -0,0 +1,272 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.LatticeState;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// the low units of the nodes confirmed so far, kept up to date as the interview confirms more of them, so they can be looked at any
+// time, and are already there once it's over.
+//
+// the pruned inclusive low units of a class are just its minimal nodes: the first of the class in a chain is always one, and anything
+// above another node of its class is pruned. so for each class we keep the confirmed nodes with nothing of their class confirmed below
+// them. nodes in between two of a class are that class too, or impossible, so a new node is only above one of its class if one of its
+// down neighbors is, unless there's an impossible one in the way, and then we just look.
+//
+// the exclusive candidates only depend on a node and its up neighbors, so they're worked out again for the nodes around each one
+// confirmed. which of those are worth keeping depends on the order they're looked at, so that part is done when the units are asked for.
+//
+// once the interview is over every node is in, and an expert adjustment can move some of them to another class. see reclassify.
+public class LowUnitBorder {
+
+    private static final int NOT_EXCLUSIVE = Integer.MAX_VALUE;
+
+    private final Lattice lattice;
+    private final LatticeState state;
+
+    // by class. IMPOSSIBLE_CLASSIFICATION is a class here too, the same as in LowUnitsFactory.
+    private final Map<Integer, RoaringBitmap> confirmedOfClass = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> minimalOfClass = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> exclusiveCandidatesOfClass = new HashMap<>();
+
+    // the class each node is an exclusive candidate for, or NOT_EXCLUSIVE.
+    private final int[] exclusiveClassOfNode;
+    private final RoaringBitmap confirmed = new RoaringBitmap();
+
+    // starts from whatever is confirmed already, which is normally just the impossible nodes.
+    public LowUnitBorder(final Lattice lattice) {
+        this.lattice = lattice;
+        this.state = lattice.state;
+        this.exclusiveClassOfNode = new int[lattice.size()];
+        Arrays.fill(exclusiveClassOfNode, NOT_EXCLUSIVE);
+
+        final RoaringBitmap alreadyConfirmed = new RoaringBitmap();
+        for (int nodeID = 0; nodeID < lattice.size(); nodeID++) {
+            if (state.isConfirmed(nodeID))
+                alreadyConfirmed.add(nodeID);
+        }
+        update(alreadyConfirmed);
+    }
+
+    // takes in the nodes one question (or a batch of them) confirmed.
+    public synchronized void update(final RoaringBitmap nodesConfirmed) {
+        final RoaringBitmap newlyConfirmed = RoaringBitmap.andNot(nodesConfirmed, confirmed);
+        if (newlyConfirmed.isEmpty())
+            return;
+
+        confirmed.or(newlyConfirmed);
+        newlyConfirmed.forEach((final int nodeID) ->
+                confirmedOfClass.computeIfAbsent(state.floor(nodeID), k -> new RoaringBitmap()).add(nodeID));
+
+        // everyone is in confirmedOfClass first, so it doesn't matter what order they go in. a node which was minimal can only
+        // stop being so because of a new one below it, which is then either a down neighbor of it, or behind an impossible one.
+        newlyConfirmed.forEach((final int nodeID) -> {
+            final int classification = state.floor(nodeID);
+            final RoaringBitmap minimal = minimalOfClass.computeIfAbsent(classification, k -> new RoaringBitmap());
+            for (int attribute = 0; attribute < lattice.dimension() && !minimal.isEmpty(); attribute++) {
+                final int upNeighbor = lattice.upNeighborID(nodeID, attribute);
+                if (upNeighbor == Lattice.NO_NEIGHBOR)
+                    continue;
+                if (classification == Node.IMPOSSIBLE_CLASSIFICATION || isImpossible(upNeighbor)) {
+                    final RoaringBitmap above = lattice.attributeSlices.upSet(nodeID);
+                    above.remove(nodeID);
+                    minimal.andNot(above);
+                    break;
+                }
+                minimal.remove(upNeighbor);
+            }
+            if (!hasConfirmedOfClassBelow(nodeID, classification)) {
+                minimal.add(nodeID);
+            }
+        });
+
+        // and then the exclusive candidates, for every node which was confirmed or has an up neighbor which was.
+        final RoaringBitmap toRecheck = newlyConfirmed.clone();
+        newlyConfirmed.forEach((final int nodeID) -> {
+            for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+                if (downNeighbor != Lattice.NO_NEIGHBOR)
+                    toRecheck.add(downNeighbor);
+            }
+        });
+        toRecheck.forEach((final int nodeID) -> setExclusiveClass(nodeID, exclusiveClassOf(nodeID)));
+    }
+
+    // once every node is in, moves the given nodes to the class their floor has now. only nodes above one of them can have a node of
+    // their class below them come or go, so the minimal nodes are only redone in that up-cone, and the exclusive candidates only for
+    // them and their down neighbors, like in update. returns the classes whose minimal nodes or exclusive candidates changed, the only
+    // ones whose low units can have.
+    public synchronized Set<Integer> reclassify(final RoaringBitmap nodesReclassified) {
+        if (!isComplete()) {
+            throw new IllegalStateException(String.format("Only %d of the %d nodes are in, nodes can only be reclassified once all of them are.",
+                    confirmed.getCardinality(), lattice.size()));
+        }
+
+        final Set<Integer> classesChanged = new HashSet<>();
+        final RoaringBitmap moved = new RoaringBitmap();
+        nodesReclassified.forEach((final int nodeID) -> {
+            final int oldClass = classOf(nodeID);
+            final int newClass = state.floor(nodeID);
+            if (oldClass == newClass)
+                return;
+            confirmedOfClass.get(oldClass).remove(nodeID);
+            confirmedOfClass.computeIfAbsent(newClass, k -> new RoaringBitmap()).add(nodeID);
+            final RoaringBitmap minimalOfOldClass = minimalOfClass.get(oldClass);
+            if (minimalOfOldClass != null && minimalOfOldClass.checkedRemove(nodeID))
+                classesChanged.add(oldClass);
+            moved.add(nodeID);
+        });
+        if (moved.isEmpty())
+            return classesChanged;
+
+        // in ID order, anything above a node we've already been through is in the cone already, and so is everything above it.
+        final RoaringBitmap upCone = new RoaringBitmap();
+        moved.forEach((final int nodeID) -> {
+            if (!upCone.contains(nodeID))
+                upCone.or(lattice.attributeSlices.upSet(nodeID));
+        });
+        upCone.forEach((final int nodeID) -> {
+            final int classification = state.floor(nodeID);
+            final RoaringBitmap minimal = minimalOfClass.computeIfAbsent(classification, k -> new RoaringBitmap());
+            final boolean isMinimal = !hasConfirmedOfClassBelow(nodeID, classification);
+            if (isMinimal != minimal.contains(nodeID)) {
+                if (isMinimal)
+                    minimal.add(nodeID);
+                else
+                    minimal.remove(nodeID);
+                classesChanged.add(classification);
+            }
+        });
+
+        final RoaringBitmap toRecheck = moved.clone();
+        moved.forEach((final int nodeID) -> {
+            for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+                if (downNeighbor != Lattice.NO_NEIGHBOR)
+                    toRecheck.add(downNeighbor);
+            }
+        });
+        toRecheck.forEach((final int nodeID) -> {
+            final int oldClass = exclusiveClassOfNode[nodeID];
+            final int newClass = exclusiveClassOf(nodeID);
+            if (oldClass == newClass)
+                return;
+            setExclusiveClass(nodeID, newClass);
+            if (oldClass != NOT_EXCLUSIVE)
+                classesChanged.add(oldClass);
+            if (newClass != NOT_EXCLUSIVE)
+                classesChanged.add(newClass);
+        });
+        return classesChanged;
+    }
+
+    // the class a node went in as. there are only a few classes, so we just look.
+    private int classOf(final int nodeID) {
+        for (final Map.Entry<Integer, RoaringBitmap> entry : confirmedOfClass.entrySet()) {
+            if (entry.getValue().contains(nodeID))
+                return entry.getKey();
+        }
+        throw new IllegalStateException(String.format("Node %d was never taken in.", nodeID));
+    }
+
+    // true once every node in the lattice is confirmed, so the low units are the final ones.
+    public synchronized boolean isComplete() {
+        return confirmed.getCardinality() == lattice.size();
+    }
+
+    // the pruned low units of what has been confirmed so far. once everything is confirmed, this is just what
+    // LowUnitsFactory.findPrunedLowUnits would find.
+    public synchronized Map<Integer, Set<LowUnit>> lowUnits() {
+        return lowUnits(minimalOfClass.keySet());
+    }
+
+    // the same, for only these classes. a class with nothing in it has no entry.
+    public synchronized Map<Integer, Set<LowUnit>> lowUnits(final Set<Integer> classifications) {
+        final Map<Integer, Set<LowUnit>> minimalLowUnits = new HashMap<>();
+        final Map<Integer, Set<LowUnit>> exclusiveLowUnits = new HashMap<>();
+        minimalOfClass.forEach((classification, minimal) -> {
+            if (minimal.isEmpty() || !classifications.contains(classification))
+                return;
+            minimalLowUnits.put(classification, lowUnitsOf(minimal, LowUnit.Type.INCLUSIVE, classification));
+            final RoaringBitmap exclusive = exclusiveCandidatesOfClass.get(classification);
+            if (exclusive != null)
+                exclusiveLowUnits.put(classification, lowUnitsOf(exclusive, LowUnit.Type.EXCLUSIVE, classification));
+        });
+        return LowUnitsFactory.removeUselessLowUnitsOfMinimal(minimalLowUnits, exclusiveLowUnits);
+    }
+
+    // the low units once the interview is over, printed the same way findPrunedLowUnits does.
+    public synchronized Map<Integer, Set<LowUnit>> finalLowUnits() {
+        if (!isComplete()) {
+            throw new IllegalStateException(String.format("Only %d of the %d nodes are confirmed, so these low units aren't final yet.",
+                    confirmed.getCardinality(), lattice.size()));
+        }
+        final Map<Integer, Set<LowUnit>> prunedUnits = lowUnits();
+        LowUnitsFactory.printLowUnitCounts(prunedUnits);
+        return prunedUnits;
+    }
+
+    private Set<LowUnit> lowUnitsOf(final RoaringBitmap nodeIDs, final LowUnit.Type type, final int classification) {
+        final Set<LowUnit> lowUnits = new HashSet<>();
+        nodeIDs.forEach((final int nodeID) -> lowUnits.add(new LowUnit(lattice.getNode(nodeID), type, classification)));
+        return lowUnits;
+    }
+
+    private boolean hasConfirmedOfClassBelow(final int nodeID, final int classification) {
+        boolean impossibleInTheWay = classification == Node.IMPOSSIBLE_CLASSIFICATION;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+            if (downNeighbor == Lattice.NO_NEIGHBOR || !confirmed.contains(downNeighbor))
+                continue;
+            if (state.floor(downNeighbor) == classification)
+                return true;
+            impossibleInTheWay |= isImpossible(downNeighbor);
+        }
+        if (!impossibleInTheWay)
+            return false;
+
+        // impossible nodes don't sit between nodes of one class in any order, so past them we have to look at everything below.
+        final RoaringBitmap below = lattice.attributeSlices.downSet(nodeID);
+        below.remove(nodeID);
+        return RoaringBitmap.intersects(below, confirmedOfClass.get(classification));
+    }
+
+    // the same test as LowUnitsFactory.findExclusiveLowUnits, once the node and all of its up neighbors are confirmed.
+    private int exclusiveClassOf(final int nodeID) {
+        if (!confirmed.contains(nodeID) || isImpossible(nodeID))
+            return NOT_EXCLUSIVE;
+
+        final int classification = state.floor(nodeID);
+        int lowestClassAbove = NOT_EXCLUSIVE;
+        for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+            final int upNeighbor = lattice.upNeighborID(nodeID, attribute);
+            if (upNeighbor == Lattice.NO_NEIGHBOR)
+                continue;
+            if (!confirmed.contains(upNeighbor) || state.floor(upNeighbor) == classification)
+                return NOT_EXCLUSIVE;
+            lowestClassAbove = Math.min(lowestClassAbove, state.floor(upNeighbor));
+        }
+        return lowestClassAbove;
+    }
+
+    private void setExclusiveClass(final int nodeID, final int exclusiveClass) {
+        final int oldClass = exclusiveClassOfNode[nodeID];
+        if (oldClass == exclusiveClass)
+            return;
+        if (oldClass != NOT_EXCLUSIVE)
+            exclusiveCandidatesOfClass.get(oldClass).remove(nodeID);
+        if (exclusiveClass != NOT_EXCLUSIVE)
+            exclusiveCandidatesOfClass.computeIfAbsent(exclusiveClass, k -> new RoaringBitmap()).add(nodeID);
+        exclusiveClassOfNode[nodeID] = exclusiveClass;
+    }
+
+    private boolean isImpossible(final int nodeID) {
+        return state.floor(nodeID) == Node.IMPOSSIBLE_CLASSIFICATION;
+    }
+}
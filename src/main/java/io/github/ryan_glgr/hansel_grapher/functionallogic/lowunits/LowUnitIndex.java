@@ -0,0 +1,118 @@
+package io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits;
+
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+import lombok.NonNull;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// which class a point gets from a set of low units, without going through every unit to see if it's under the point. for each class,
+// one bitmap per (attribute, value) of the units with values[attribute] <= value, the same "<=" slices AttributeSliceIndex keeps for the
+// nodes of the lattice, just over the low units of one class. the units under a point are then the AND of the d slices at its values.
+//
+// the classes are tried from the highest down, so the first one with a unit left under the point is the answer. impossible units are
+// left out, they don't give anything a class.
+public class LowUnitIndex {
+
+    public static final int NOT_DOMINATED = -1;
+
+    private final List<ClassSlices> classesHighestFirst = new ArrayList<>();
+
+    private static final class ClassSlices {
+
+        private final int classification;
+
+        // atMost[a][v] holds every unit of this class with values[a] <= v. there's one slice per value up to the highest any unit has
+        // in that attribute, since every unit is under anything above that.
+        private final RoaringBitmap[][] atMost;
+
+        // the exclusive units, by their values. those don't classify the exact point they sit on.
+        private final Map<List<Integer>, RoaringBitmap> exclusiveAt = new HashMap<>();
+
+        private ClassSlices(final int classification, final List<LowUnit> lowUnits) {
+            this.classification = classification;
+            final int dimension = lowUnits.getFirst().getDatapoint().values.length;
+
+            this.atMost = new RoaringBitmap[dimension][];
+            for (int attribute = 0; attribute < dimension; attribute++) {
+                int highestValue = 0;
+                for (final LowUnit lowUnit : lowUnits) {
+                    highestValue = Math.max(highestValue, lowUnit.getDatapoint().values[attribute]);
+                }
+                atMost[attribute] = new RoaringBitmap[highestValue + 1];
+                for (int value = 0; value <= highestValue; value++) {
+                    atMost[attribute][value] = new RoaringBitmap();
+                }
+                // each unit goes in its own value's slice and every one above it.
+                for (int unit = 0; unit < lowUnits.size(); unit++) {
+                    for (int value = lowUnits.get(unit).getDatapoint().values[attribute]; value <= highestValue; value++) {
+                        atMost[attribute][value].add(unit);
+                    }
+                }
+                for (final RoaringBitmap slice : atMost[attribute]) {
+                    slice.runOptimize();
+                }
+            }
+
+            for (int unit = 0; unit < lowUnits.size(); unit++) {
+                final LowUnit lowUnit = lowUnits.get(unit);
+                if (LowUnit.Type.EXCLUSIVE.equals(lowUnit.getLowUnitType())) {
+                    exclusiveAt.computeIfAbsent(Arrays.asList(lowUnit.getDatapoint().values), k -> new RoaringBitmap()).add(unit);
+                }
+            }
+        }
+
+        private boolean classifies(final Integer[] values) {
+            RoaringBitmap under = null;
+            for (int attribute = 0; attribute < atMost.length; attribute++) {
+                if (values[attribute] < 0)
+                    return false;
+                final RoaringBitmap slice = atMost[attribute][Math.min(values[attribute], atMost[attribute].length - 1)];
+                under = under == null ? slice.clone() : RoaringBitmap.and(under, slice);
+                if (under.isEmpty())
+                    return false;
+            }
+
+            final RoaringBitmap exclusiveHere = exclusiveAt.get(Arrays.asList(values));
+            if (exclusiveHere != null) {
+                under.andNot(exclusiveHere);
+            }
+            return !under.isEmpty();
+        }
+    }
+
+    public LowUnitIndex(@NonNull final Map<Integer, Set<LowUnit>> lowUnitsByClass) {
+        lowUnitsByClass.entrySet().stream()
+                .filter(entry -> entry.getKey() != Node.IMPOSSIBLE_CLASSIFICATION && !entry.getValue().isEmpty())
+                .sorted(Map.Entry.<Integer, Set<LowUnit>>comparingByKey(Comparator.reverseOrder()))
+                .forEach(entry -> classesHighestFirst.add(new ClassSlices(entry.getKey(), new ArrayList<>(entry.getValue()))));
+    }
+
+    // for low units given as plain nodes, like the known ones, which are all inclusive.
+    public static LowUnitIndex ofNodes(@NonNull final Map<Integer, Set<Node>> nodesByClass) {
+        final Map<Integer, Set<LowUnit>> lowUnitsByClass = new HashMap<>();
+        nodesByClass.forEach((classification, nodes) -> {
+            final Set<LowUnit> lowUnits = lowUnitsByClass.computeIfAbsent(classification, k -> new HashSet<>());
+            for (final Node node : nodes) {
+                lowUnits.add(new LowUnit(node, LowUnit.Type.INCLUSIVE, classification));
+            }
+        });
+        return new LowUnitIndex(lowUnitsByClass);
+    }
+
+    // the highest class with a low unit which classifies this point, or NOT_DOMINATED if none do.
+    public int highestClassOf(@NonNull final Integer[] values) {
+        for (final ClassSlices slices : classesHighestFirst) {
+            if (slices.classifies(values))
+                return slices.classification;
+        }
+        return NOT_DOMINATED;
+    }
+}
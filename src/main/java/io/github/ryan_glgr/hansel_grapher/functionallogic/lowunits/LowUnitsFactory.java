@@ -10,93 +10,162 @@ import java.util.stream.Stream;
 
 public class LowUnitsFactory {
 
-    private static Map<Integer, Set<LowUnit>> findRegularLowUnits(@NonNull final ArrayList<ArrayList<Node>> hanselChainSet) {
+    private static Map<Integer, Set<LowUnit>> findRegularLowUnits(@NonNull final List<? extends List<Node>> hanselChainSet) {
 
         final Map<Integer, Set<LowUnit>> lowUnitMap = new HashMap<>();
 
-        for(final ArrayList<Node> chain : hanselChainSet){
-            final Map<Integer, LowUnit> lowestNodeOfEachClassInThisChain = new HashMap<>();
+        // one set reused for every chain, rather than a fresh map (and a LowUnit for every node) per chain.
+        final Set<Integer> classesSeenInThisChain = new HashSet<>();
+        for (final List<Node> chain : hanselChainSet) {
+            classesSeenInThisChain.clear();
 
             for (final Node node : chain) {
                 // taking only the first occurence of the classification in each chain. this is the definition of a low unit.
-                lowestNodeOfEachClassInThisChain.putIfAbsent(node.classification, new LowUnit(node, LowUnit.Type.INCLUSIVE, node.classification));
+                final int classification = node.getClassification();
+                if (classesSeenInThisChain.add(classification)) {
+                    lowUnitMap.computeIfAbsent(classification, k -> new HashSet<>())
+                            .add(new LowUnit(node, LowUnit.Type.INCLUSIVE, classification));
+                }
             }
-
-            // add to our collection of low units for each classification
-            lowestNodeOfEachClassInThisChain.forEach((classification, lowUnit) -> {
-                        lowUnitMap.putIfAbsent(classification, new HashSet<>());
-                        lowUnitMap.get(classification).add(lowUnit);
-                    });
         }
         return lowUnitMap;
     }
 
+    // keeps only the low units which aren't classified by another one. each class is pruned on its own, and the classes are done in
+    // parallel, since nothing crosses between them.
     private static Map<Integer, Set<LowUnit>> removeUselessLowUnits(final Map<Integer, Set<LowUnit>> regularLowUnits,
                                                                     final Map<Integer, Set<LowUnit>> exclusiveLowUnits) {
 
-        final Set<Integer> classifications = regularLowUnits.keySet();
-
-        final Map<Integer, Set<LowUnit>> newLowUnits = new HashMap<>();
-        for (final Integer classification : classifications) {
-            newLowUnits.put(classification, new HashSet<>());
-        }
-
-        for (final Map.Entry<Integer, Set<LowUnit>> regularLowUnitsOfThisClass : regularLowUnits.entrySet()) {
-            final Integer classification = regularLowUnitsOfThisClass.getKey();
-            final Set<LowUnit> lowUnits = regularLowUnitsOfThisClass.getValue();
+        return regularLowUnits.keySet()
+                .parallelStream()
+                .collect(Collectors.toMap(classification -> classification,
+                        classification -> removeUselessLowUnits(regularLowUnits.get(classification),
+                                exclusiveLowUnits.getOrDefault(classification, Set.of())),
+                        (a, b) -> a,
+                        HashMap::new));
+    }
 
-            // add all the low units for this class
-            newLowUnits.get(classification).addAll(lowUnits);
+    // the same, for inclusive low units which are all minimal already, so only the exclusive ones have to be sorted out.
+    static Map<Integer, Set<LowUnit>> removeUselessLowUnitsOfMinimal(final Map<Integer, Set<LowUnit>> minimalLowUnits,
+                                                                     final Map<Integer, Set<LowUnit>> exclusiveLowUnits) {
+
+        return minimalLowUnits.keySet()
+                .parallelStream()
+                .collect(Collectors.toMap(classification -> classification,
+                        classification -> removeLowUnitsUnderExclusives(new ArrayList<>(minimalLowUnits.get(classification)),
+                                exclusiveLowUnits.getOrDefault(classification, Set.of())),
+                        (a, b) -> a,
+                        HashMap::new));
+    }
 
-            final HashSet<LowUnit> redundantLowUnits = new HashSet<>();
-            // for each node, if it is totally dominated by any of the other nodes, we know that we can remove that other node which is dominating us.
-            for (final LowUnit lowUnit : lowUnits) {
-                if (redundantLowUnits.contains(lowUnit))
-                    continue;
+    private static Set<LowUnit> removeUselessLowUnits(final Set<LowUnit> lowUnits, final Set<LowUnit> exclusiveLowUnits) {
+
+        // an inclusive low unit which is >= another one of the same class in every attribute tells us nothing new, so we just keep
+        // the minimal ones: the skyline. a unit can only be under another one with a smaller sum, so going up by sum, each unit only
+        // has to be checked against the skyline found so far. whatever is left is the same no matter which order they came in.
+        final List<LowUnit> bySum = new ArrayList<>(lowUnits);
+        final int dimension = bySum.isEmpty() ? 0 : bySum.getFirst().getDatapoint().values.length;
+        final int[] points = valuesOf(bySum, dimension);
+        final int[] sums = sumsOf(points, bySum.size(), dimension);
+        final Integer[] order = sortedIndices(bySum.size(), Comparator
+                .<Integer>comparingInt(i -> sums[i])
+                .thenComparing((a, b) -> Arrays.compare(points, a * dimension, (a + 1) * dimension, points, b * dimension, (b + 1) * dimension)));
+
+        final int[] skyline = new int[bySum.size()];
+        int skylineSize = 0;
+        for (final int candidate : order) {
+            boolean isDominated = false;
+            for (int i = 0; i < skylineSize && !isDominated; i++) {
+                isDominated = isAtOrBelow(points, skyline[i], points, candidate, dimension);
+            }
+            if (!isDominated) {
+                skyline[skylineSize++] = candidate;
+            }
+        }
 
-                for (final LowUnit otherLowUnit : lowUnits) {
-                    if (lowUnit == otherLowUnit || redundantLowUnits.contains(otherLowUnit)) {
-                        continue;
-                    }
-                    // NOTE: this check ALSO relies on the fact that they are the same classification. since they are mapped by classification, that check is skipped.
-                    if (lowUnit.classifies(otherLowUnit.getDatapoint())) {
-                        redundantLowUnits.add(otherLowUnit);
+        final List<LowUnit> minimalLowUnits = new ArrayList<>(skylineSize);
+        for (int i = 0; i < skylineSize; i++) {
+            minimalLowUnits.add(bySum.get(skyline[i]));
+        }
+        return removeLowUnitsUnderExclusives(minimalLowUnits, exclusiveLowUnits);
+    }
 
-                    }
+    private static Set<LowUnit> removeLowUnitsUnderExclusives(final List<LowUnit> minimalLowUnits, final Set<LowUnit> exclusiveLowUnits) {
+        final int dimension = minimalLowUnits.isEmpty() ? 0 : minimalLowUnits.getFirst().getDatapoint().values.length;
+        final int[] points = valuesOf(minimalLowUnits, dimension);
+
+        // then each of those is taken out by the first exclusive low unit, in lexicographic order, which is below it and isn't the
+        // same point. an exclusive unit is only worth keeping if it took something out. one below another is also lexicographically
+        // before it, so we only look at the exclusive units up to the inclusive one's spot in that order.
+        final List<LowUnit> exclusiveByLex = exclusiveLowUnits.stream()
+                .sorted((a, b) -> NodeComparisons.LEXICOGRAPHIC_NODE_COMPARATOR.compare(a.getDatapoint(), b.getDatapoint()))
+                .toList();
+        final int[] exclusivePoints = valuesOf(exclusiveByLex, dimension);
+        final boolean[] exclusiveUsed = new boolean[exclusiveByLex.size()];
+
+        final Set<LowUnit> prunedLowUnits = new HashSet<>();
+        for (int inclusive = 0; inclusive < minimalLowUnits.size(); inclusive++) {
+            boolean removed = false;
+            for (int exclusive = 0; exclusive < exclusiveByLex.size() && !removed; exclusive++) {
+                final int lex = Arrays.compare(exclusivePoints, exclusive * dimension, (exclusive + 1) * dimension,
+                        points, inclusive * dimension, (inclusive + 1) * dimension);
+                if (lex >= 0)
+                    break;
+                if (isAtOrBelow(exclusivePoints, exclusive, points, inclusive, dimension)) {
+                    exclusiveUsed[exclusive] = true;
+                    removed = true;
                 }
             }
-            newLowUnits.get(classification).removeIf(redundantLowUnits::contains);
+            if (!removed) {
+                prunedLowUnits.add(minimalLowUnits.get(inclusive));
+            }
+        }
+        for (int exclusive = 0; exclusive < exclusiveByLex.size(); exclusive++) {
+            if (exclusiveUsed[exclusive]) {
+                prunedLowUnits.add(exclusiveByLex.get(exclusive));
+            }
         }
+        return prunedLowUnits;
+    }
 
-        final Map<Integer, Set<LowUnit>> exclusiveLowUnitsToUse = new HashMap<>();
-        for (final Integer classification : classifications) {
-            exclusiveLowUnitsToUse.put(classification, new HashSet<>());
+    // every unit's values, back to back.
+    private static int[] valuesOf(final List<LowUnit> lowUnits, final int dimension) {
+        final int[] points = new int[lowUnits.size() * dimension];
+        for (int i = 0; i < lowUnits.size(); i++) {
+            final Integer[] values = lowUnits.get(i).getDatapoint().values;
+            for (int attribute = 0; attribute < dimension; attribute++) {
+                points[i * dimension + attribute] = values[attribute];
+            }
         }
+        return points;
+    }
 
-        for (final Map.Entry<Integer, Set<LowUnit>> exclusiveLowUnitsOfThisClass : exclusiveLowUnits.entrySet()) {
-            final Integer classification = exclusiveLowUnitsOfThisClass.getKey();
-            final Set<LowUnit> lowUnitsOfThisClass = newLowUnits.get(classification);
-
-            // sorting because we need deterministic behavior, and streams are not necessarily deterministic.
-            final List<LowUnit> sortedExclusiveUnits = exclusiveLowUnitsOfThisClass.getValue()
-                    .stream()
-                    .sorted((a, b) ->
-                            NodeComparisons.LEXICOGRAPHIC_NODE_COMPARATOR.compare(a.getDatapoint(), b.getDatapoint()))
-                    .toList();
-
-            for (final LowUnit exclusiveLowUnit : sortedExclusiveUnits) {
-                final boolean removedSomething = lowUnitsOfThisClass.removeIf(regularLowUnit ->
-                        exclusiveLowUnit.classifies(regularLowUnit.getDatapoint()));
-                if (removedSomething) {
-                    exclusiveLowUnitsToUse.get(classification).add(exclusiveLowUnit);
-                }
+    private static int[] sumsOf(final int[] points, final int numberOfPoints, final int dimension) {
+        final int[] sums = new int[numberOfPoints];
+        for (int i = 0; i < numberOfPoints; i++) {
+            for (int attribute = 0; attribute < dimension; attribute++) {
+                sums[i] += points[i * dimension + attribute];
             }
         }
+        return sums;
+    }
 
-        for (final Integer classification : classifications) {
-            newLowUnits.get(classification).addAll(exclusiveLowUnitsToUse.get(classification));
+    private static Integer[] sortedIndices(final int size, final Comparator<Integer> comparator) {
+        final Integer[] indices = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
         }
-        return newLowUnits;
+        Arrays.sort(indices, comparator);
+        return indices;
+    }
+
+    // point a of one array is <= point b of another, in every attribute.
+    private static boolean isAtOrBelow(final int[] pointsA, final int a, final int[] pointsB, final int b, final int dimension) {
+        for (int attribute = 0; attribute < dimension; attribute++) {
+            if (pointsA[a * dimension + attribute] > pointsB[b * dimension + attribute])
+                return false;
+        }
+        return true;
     }
 
     // a node is considered an "exclusive low unit" in this use case: it has a classification N, and all it's upstairs neighbors (nodes with + 1 in some attribute compared to itself)
@@ -111,27 +180,27 @@ public class LowUnitsFactory {
             // not possible anyways, because we have defined impossible units as anything >= to something anyways. So it can never
             // happen where this node is impossible but something above is possible. if we change that to be flexible (allowing impossibility
             // to go both up and down), then this is not necessary and we should try harder here.
-            if (Node.IMPOSSIBLE_CLASSIFICATION.equals(node.classification))
+            if (node.getClassification() == Node.IMPOSSIBLE_CLASSIFICATION)
                 continue;
 
             boolean isExclusiveLowUnit = true;
             final Map<Integer, Integer> numberOfNeighborsOfEachClass = new HashMap<>();
-            final Node[] directUpExpansions = node.upExpansions;
+            final Node[] directUpExpansions = node.getUpExpansions();
             for (final Node upExpandedNeighbor : directUpExpansions) {
 
                 if (upExpandedNeighbor == null)
                     continue;
 
-                final Integer neighborClass = upExpandedNeighbor.classification;
+                final int neighborClass = upExpandedNeighbor.getClassification();
 
                 // if the upstairs neighbor is this same class, we do not have the optimization of saying "anything
                 // HIGHER than this node is class X", since upstairs neighbor is higher, yet the same class.
-                if (neighborClass.equals(node.classification)) {
+                if (neighborClass == node.getClassification()) {
                     isExclusiveLowUnit = false;
                     break;
                 }
 
-                if (neighborClass < node.classification && !Node.IMPOSSIBLE_CLASSIFICATION.equals(neighborClass)) {
+                if (neighborClass < node.getClassification() && neighborClass != Node.IMPOSSIBLE_CLASSIFICATION) {
                     throw new IllegalStateException(String.format("Monotonicity has been violated by node: " +
                             "[%s] being lower class than node: [%s]", upExpandedNeighbor, node));
                 }
@@ -160,11 +229,16 @@ public class LowUnitsFactory {
         return exclusiveLowUnits;
     }
 
-    public static Map<Integer, Set<LowUnit>> findPrunedLowUnits(@NonNull final ArrayList<ArrayList<Node>> hanselChainSet) {
+    public static Map<Integer, Set<LowUnit>> findPrunedLowUnits(@NonNull final List<? extends List<Node>> hanselChainSet) {
         final Map<Integer, Set<LowUnit>> inclusiveLowUnits = findRegularLowUnits(hanselChainSet);
         final Map<Integer, Set<LowUnit>> exclusiveLowUnits = findExclusiveLowUnits(
-                hanselChainSet.stream().flatMap(ArrayList::stream).collect(Collectors.toSet()));
+                hanselChainSet.stream().flatMap(List::stream).collect(Collectors.toSet()));
         final Map<Integer, Set<LowUnit>> prunedUnits = removeUselessLowUnits(inclusiveLowUnits, exclusiveLowUnits);
+        printLowUnitCounts(prunedUnits);
+        return prunedUnits;
+    }
+
+    static void printLowUnitCounts(final Map<Integer, Set<LowUnit>> prunedUnits) {
 
         int numInclusive = 0;
         int numExclusive = 0;
@@ -178,7 +252,6 @@ public class LowUnitsFactory {
         }
         System.out.printf("Found: [%s] total low units. [%s] were inclusive, [%s] were exclusive.",
                 numExclusive + numInclusive, numInclusive, numExclusive);
-        return prunedUnits;
     }
 }
 
@@ -0,0 +1,160 @@
+package io.github.ryan_glgr.hansel_grapher.functionrules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// the rule trees flattened into one int array, so that scoring a row is a loop over that array, rather than a walk over RuleNode objects.
+//
+// each tree node is one entry of ENTRY_SIZE ints, laid out in preorder: the attribute and value of its clause, where its subtree ends,
+// and what rule ends there, if any. if the clause holds we check the rule and then go on to the first child, which is the next entry. if
+// it doesn't, we skip to the end of the subtree, which is the next sibling, or the next sibling of a parent once we're out of children.
+//
+// the classes go from the highest down, each with its inclusive rules and then its exclusive ones, and the first class with a rule
+// which holds is the answer, so nothing below it is looked at.
+public class CompiledRuleTrees {
+
+    private static final int ATTRIBUTE = 0;
+    private static final int VALUE = 1;
+    private static final int SUBTREE_END = 2;
+    private static final int RULE_END = 3;
+    private static final int ENTRY_SIZE = 4;
+
+    // what goes in RULE_END. a rule holds if RULE_END < the sum of the row's values. an inclusive rule always does. an exclusive one
+    // holds above its low unit but not on it, and since the row is already >= the low unit there, that's just when its sum is bigger.
+    // so an exclusive rule stores the sum of its low unit's values, which are the values along its path, and 0 everywhere else.
+    private static final int NO_RULE = Integer.MAX_VALUE;
+    private static final int INCLUSIVE_RULE = -1;
+
+    private final int[] program;
+
+    // per class, highest first: the class, and where its rules start and end.
+    private final int[] classifications;
+    private final int[] starts;
+    private final int[] ends;
+
+    private CompiledRuleTrees(final int[] program, final int[] classifications, final int[] starts, final int[] ends) {
+        this.program = program;
+        this.classifications = classifications;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    // ruleTrees[c] is the tree of class c, as Interview.ruleTrees has them. classes without a tree are left out.
+    public static CompiledRuleTrees compile(final RuleNode[] ruleTrees) {
+        final Program program = new Program();
+        final List<int[]> classes = new ArrayList<>();
+        for (int classification = ruleTrees.length - 1; classification >= 0; classification--) {
+            final RuleNode root = ruleTrees[classification];
+            if (root == null)
+                continue;
+            final int start = program.size;
+            compileRoot(program, root, true);
+            compileRoot(program, root, false);
+            if (program.size > start) {
+                classes.add(new int[]{ classification, start, program.size });
+            }
+        }
+
+        return new CompiledRuleTrees(program.toArray(),
+                classes.stream().mapToInt(c -> c[0]).toArray(),
+                classes.stream().mapToInt(c -> c[1]).toArray(),
+                classes.stream().mapToInt(c -> c[2]).toArray());
+    }
+
+    // the root has no clause of its own. a rule ending at it is a low unit at the very bottom, which gets an entry whose clause always
+    // holds.
+    private static void compileRoot(final Program program, final RuleNode root, final boolean isInclusive) {
+        if (RuleNode.ruleEndsHere(root, isInclusive)) {
+            program.add(0, 0, program.size + ENTRY_SIZE, isInclusive ? INCLUSIVE_RULE : 0);
+        }
+        final RuleNode[] children = isInclusive ? root.inclusiveRuleset : root.exclusiveRuleset;
+        if (children != null) {
+            for (final RuleNode child : children) {
+                compileNode(program, child, isInclusive, 0);
+            }
+        }
+    }
+
+    private static void compileNode(final Program program, final RuleNode node, final boolean isInclusive, final int sumAbove) {
+        final int sum = sumAbove + node.attributeValue;
+        final RuleNode[] children = isInclusive ? node.inclusiveRuleset : node.exclusiveRuleset;
+        final boolean ruleEndsHere = children == null || RuleNode.ruleEndsHere(node, isInclusive);
+
+        final int entry = program.size;
+        program.add(node.attributeIndex, node.attributeValue, 0, ruleEndsHere ? (isInclusive ? INCLUSIVE_RULE : sum) : NO_RULE);
+        if (children != null) {
+            for (final RuleNode child : children) {
+                compileNode(program, child, isInclusive, sum);
+            }
+        }
+        program.set(entry + SUBTREE_END, program.size);
+    }
+
+    // the class of this row: the highest class with a rule which holds for it, or 0 if none do.
+    public int classify(final int[] row) {
+        int rowSum = 0;
+        for (final int value : row) {
+            rowSum += value;
+        }
+        for (int c = 0; c < classifications.length; c++) {
+            if (anyRuleHolds(row, rowSum, starts[c], ends[c]))
+                return classifications[c];
+        }
+        return 0;
+    }
+
+    public int[] classify(final int[][] rows) {
+        final int[] classes = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            classes[i] = classify(rows[i]);
+        }
+        return classes;
+    }
+
+    // the inclusive and exclusive rules of a class sit back to back, and neither one's entries point outside of itself, so both are
+    // run as one.
+    private boolean anyRuleHolds(final int[] row, final int rowSum, final int start, final int end) {
+        int entry = start;
+        while (entry < end) {
+            if (row[program[entry + ATTRIBUTE]] >= program[entry + VALUE]) {
+                if (program[entry + RULE_END] < rowSum)
+                    return true;
+                entry += ENTRY_SIZE;
+            } else {
+                entry = program[entry + SUBTREE_END];
+            }
+        }
+        return false;
+    }
+
+    // how many entries the program has, across every class.
+    public int size() {
+        return program.length / ENTRY_SIZE;
+    }
+
+    // a growable int array, since we don't know how big the trees are until we've been through them.
+    private static final class Program {
+        private int[] entries = new int[64];
+        private int size = 0;
+
+        private void add(final int attribute, final int value, final int subtreeEnd, final int ruleEnd) {
+            if (size + ENTRY_SIZE > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[size + ATTRIBUTE] = attribute;
+            entries[size + VALUE] = value;
+            entries[size + SUBTREE_END] = subtreeEnd;
+            entries[size + RULE_END] = ruleEnd;
+            size += ENTRY_SIZE;
+        }
+
+        private void set(final int index, final int value) {
+            entries[index] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(entries, size);
+        }
+    }
+}
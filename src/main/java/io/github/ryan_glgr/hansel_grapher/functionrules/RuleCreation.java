@@ -11,13 +11,20 @@ import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnit;
 
 public class RuleCreation {
 
-    // takes in the set of low units, broken up by classification.
+    // takes in the set of low units, broken up by classification. one tree per class, so the tree of class c is always at [c], and a
+    // class without low units has null there. the impossible units aren't a class, and don't get a tree.
     public static RuleNode[] createRuleTrees(final Map<Integer, Set<LowUnit>> lowUnitSet,
+                                             final int numClasses,
                                              final int numAttributes){
 
-        return IntStream.range(0, lowUnitSet.size())
-                .mapToObj(classification ->
-                    RuleNode.createRuleNodes(new ArrayList<>(lowUnitSet.getOrDefault(classification, Set.of())), numAttributes))
+        return IntStream.range(0, numClasses)
+                .mapToObj(classification -> createRuleTree(lowUnitSet.get(classification), numAttributes))
                 .toArray(RuleNode[]::new);
     }
+
+    // the rule tree of a single class, from its low units. null if it has none.
+    public static RuleNode createRuleTree(final Set<LowUnit> lowUnitsOfClass,
+                                          final int numAttributes) {
+        return RuleNode.createRuleNodes(new ArrayList<>(lowUnitsOfClass == null ? Set.of() : lowUnitsOfClass), numAttributes);
+    }
 }
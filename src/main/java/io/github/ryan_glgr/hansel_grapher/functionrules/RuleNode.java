@@ -12,6 +12,10 @@ public class RuleNode {
     public RuleNode[] inclusiveRuleset; // grouped children (one per attribute value)
     public RuleNode[] exclusiveRuleset; // grouped children (one per attribute value), under the "EXCLUSIVE" evaluation rules.
     public final Set<Integer> attributesAlreadyUsed; // immutable for a node (copy-per-node)
+    // true if some low unit's rule ends at this node even though it has children, since the rest of its clauses were "X >= 0" and
+    // got dropped. on the root, that's a low unit at the very bottom. leaves always end a rule, so they don't need it.
+    public boolean inclusiveRuleEndsHere = false;
+    public boolean exclusiveRuleEndsHere = false;
     private RuleNode parent;
     
     /**
@@ -96,6 +100,13 @@ public class RuleNode {
         final List<RuleNode> newChildrenList = new ArrayList<>();
         for (final RuleNode child : ruleset) {
             final RuleNode[] replacement = separateKidsFromParents(child, isInclusive);
+
+            // a dropped child hands whatever rule ended at it up to us, and so does one which had nothing left under it.
+            final boolean childDropped = replacement == null || replacement.length != 1 || replacement[0] != child;
+            if (childDropped && (replacement == null || replacement.length == 0 || ruleEndsHere(child, isInclusive))) {
+                if (isInclusive) node.inclusiveRuleEndsHere = true;
+                else             node.exclusiveRuleEndsHere = true;
+            }
             if (replacement == null)
                 continue;
 
@@ -118,6 +129,10 @@ public class RuleNode {
     }
 
 
+    public static boolean ruleEndsHere(final RuleNode node, final boolean useInclusive) {
+        return useInclusive ? node.inclusiveRuleEndsHere : node.exclusiveRuleEndsHere;
+    }
+
     private RuleNode[] findChildrenGreedyTechnique(final ArrayList<Node> childrenNodes, final int dimension, final int depth, final boolean isInclusive) {
         if (childrenNodes == null || childrenNodes.isEmpty()) {
             return null; // leaf node
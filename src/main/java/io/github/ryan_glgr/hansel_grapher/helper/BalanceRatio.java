@@ -5,15 +5,20 @@ import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
 // The balance ratio to determine how "good" a node is to be classified
 public interface BalanceRatio {
 
-    double computeBalanceRatio(Node node);
+    // only the umbrella cases go in, so a ratio can be worked out for counts which aren't in the state too.
+    double computeBalanceRatio(int aboveUmbrellaCases, int underneathUmbrellaCases);
+
+    default double computeBalanceRatio(Node node) {
+        return computeBalanceRatio(node.getAboveUmbrellaCases(), node.getUnderneathUmbrellaCases());
+    }
 
     // Balance ratio using the unity of the vector <aboveUmbrellaCases, underneathUmbrellaCases>
     // and the magnitude of the same vector
-    BalanceRatio UNITY_BALANCE_RATIO = (node) -> {
+    BalanceRatio UNITY_BALANCE_RATIO = (above, underneath) -> {
         try {
-            return node.umbrellaMagnitude *
-                ((double) Math.min(node.aboveUmbrellaCases, node.underneathUmbrellaCases) /
-                    Math.max(node.aboveUmbrellaCases, node.underneathUmbrellaCases));
+            return Node.computeUmbrellaMagnitude(above, underneath) *
+                ((double) Math.min(above, underneath) /
+                    Math.max(above, underneath));
         } catch(final ArithmeticException e) {
             return Double.NEGATIVE_INFINITY;
         }
@@ -21,14 +26,15 @@ public interface BalanceRatio {
 
     // Balance ratio using the shannon entropy of the vector <aboveUmbrellaCases, underneathUmbrellaCases>
     // and the magnitude of the same vector
-    BalanceRatio SHANNON_ENTROPY_BALANCE_RATIO = (node) -> {
+    BalanceRatio SHANNON_ENTROPY_BALANCE_RATIO = (above, underneath) -> {
         final double log2 = Math.log(2);
         try {
-            double squaredMag = Math.pow(node.umbrellaMagnitude, 2);
-            double distAbove = node.aboveUmbrellaCases / squaredMag;
-            double distBelow = node.underneathUmbrellaCases / squaredMag;
+            final double magnitude = Node.computeUmbrellaMagnitude(above, underneath);
+            double squaredMag = Math.pow(magnitude, 2);
+            double distAbove = above / squaredMag;
+            double distBelow = underneath / squaredMag;
 
-            return node.umbrellaMagnitude * -1 * 
+            return magnitude * -1 * 
                 (distAbove * Math.log(distAbove) / log2 + (distBelow) * Math.log(distBelow) / log2);
         } catch(final ArithmeticException e) {
             return Double.NEGATIVE_INFINITY;
@@ -37,11 +43,11 @@ public interface BalanceRatio {
 
     // Balance ratio which scales using the magnitude of the vector <aboveUmbrellaCases, underneathUmbrellaCases>
     // and the ratio between aboveCases and the totalCases, as well as the underneathCases and total cases
-    BalanceRatio QUADRATIC_BALANCE_RATIO = (node) -> {
+    BalanceRatio QUADRATIC_BALANCE_RATIO = (above, underneath) -> {
         try {
-            return node.umbrellaMagnitude *
-                node.aboveUmbrellaCases / (double)node.totalUmbrellaCases * 
-                node.underneathUmbrellaCases / (double)node.totalUmbrellaCases;
+            return Node.computeUmbrellaMagnitude(above, underneath) *
+                above / (double)(above + underneath) * 
+                underneath / (double)(above + underneath);
         } catch(final ArithmeticException e) {
             return Double.NEGATIVE_INFINITY;
         }
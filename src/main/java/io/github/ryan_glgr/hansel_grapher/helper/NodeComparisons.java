@@ -7,29 +7,29 @@ import java.util.Comparator;
 public class NodeComparisons {
 
     public static final Comparator<Node> HIGHEST_TOTAL_UMBRELLA =
-            Comparator.comparingInt(a -> a.totalUmbrellaCases);
+            Comparator.comparingInt(a -> a.getTotalUmbrellaCases());
 
     // Sort by BEST_BALANCE_RATIO: prefer nodes with higher balanceRatio
     public static final Comparator<Node> BEST_BALANCE_RATIO =
-        Comparator.comparingDouble((Node n) -> n.balanceRatio);
+        Comparator.comparingDouble((Node n) -> n.getBalanceRatio());
 
     // Sort by SMALLEST_DIFFERENCE_UMBRELLA_SORT:
     // prefer nodes with smallest |above - below| difference, tie-breaker: larger totalUmbrellaCases
     public static final Comparator<Node> SMALLEST_DIFFERENCE_UMBRELLA =
         (x, y) -> {
-            final int diffX = Math.abs(x.aboveUmbrellaCases - x.underneathUmbrellaCases);
-            final int diffY = Math.abs(y.aboveUmbrellaCases - y.underneathUmbrellaCases);
+            final int diffX = Math.abs(x.getAboveUmbrellaCases() - x.getUnderneathUmbrellaCases());
+            final int diffY = Math.abs(y.getAboveUmbrellaCases() - y.getUnderneathUmbrellaCases());
 
             if (diffX == diffY) {
-                return Integer.compare(y.totalUmbrellaCases, x.totalUmbrellaCases); // larger total preferred
+                return Integer.compare(y.getTotalUmbrellaCases(), x.getTotalUmbrellaCases()); // larger total preferred
             }
             return Integer.compare(diffX, diffY); // smaller difference first
         };
 
     // compares two nodes by their minimum number of confirmations. Then by the second lowest, third and so on. If a total tie, we go by the balanceRatio.
     public static final Comparator<Node> BY_MIN_CLASSIFICATIONS = (a, b) -> {
-        for (int i = 0; i < a.possibleConfirmationsByClass.length; i++) {
-            int cmp = Integer.compare(a.possibleConfirmationsByClass[i], b.possibleConfirmationsByClass[i]);
+        for (int i = 0; i < a.getNumClasses(); i++) {
+            int cmp = Integer.compare(a.getPossibleConfirmations(i), b.getPossibleConfirmations(i));
             if (cmp != 0) 
                 return cmp;
         }
@@ -0,0 +1,167 @@
+package io.github.ryan_glgr.hansel_grapher.stats;
+
+import io.github.ryan_glgr.hansel_grapher.datamanipulation.NormalizedDataset;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Interview.Interview;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// how the function an interview found compares with the labels of a dataset. each row is classified by looking up its node's class in
+// the lattice, so all there is to work out per row is its ID. the rows are split up over the common fork join pool, each part counts
+// into its own Counts, and those get added together at the end. the rows themselves are only read, never copied.
+//
+// a monotonicity violation is a row labeled lower than some other row at or below it, so that no monotone function could get both
+// of them right. the highest label at or below every node comes from one pass over the lattice in ID order, since down neighbors
+// always have lower IDs, and then each row just checks its own node.
+public class DatasetEvaluation {
+
+    private static final int NO_LABEL = -1;
+
+    public final int numClasses;
+    // confusion[actual][predicted], over the rows which were classified.
+    public final long[][] confusion;
+    public final long rowsClassified;
+    public final long rowsCorrect;
+    public final long monotonicityViolations;
+    // rows which landed on an impossible node. they have no class to compare with, so they aren't in the confusion matrix.
+    public final long rowsImpossible;
+    // rows which aren't a point of the lattice, or whose label isn't one of our classes.
+    public final long rowsSkipped;
+
+    private DatasetEvaluation(final int numClasses, final Counts counts) {
+        this.numClasses = numClasses;
+        this.confusion = new long[numClasses][numClasses];
+        long classified = 0;
+        long correct = 0;
+        for (int actual = 0; actual < numClasses; actual++) {
+            for (int predicted = 0; predicted < numClasses; predicted++) {
+                confusion[actual][predicted] = counts.confusion[actual * numClasses + predicted];
+                classified += confusion[actual][predicted];
+            }
+            correct += confusion[actual][actual];
+        }
+        this.rowsClassified = classified;
+        this.rowsCorrect = correct;
+        this.monotonicityViolations = counts.monotonicityViolations;
+        this.rowsImpossible = counts.rowsImpossible;
+        this.rowsSkipped = counts.rowsSkipped;
+    }
+
+    // the interview has to be over, so every node has its class.
+    public static DatasetEvaluation evaluate(final Interview interview, final NormalizedDataset dataset) {
+        if (interview.interviewStats == null) {
+            throw new IllegalStateException("The interview has to be finished before it can be evaluated against a dataset.");
+        }
+        return evaluate(interview.lattice, interview.numClasses, dataset.getAllDatapoints());
+    }
+
+    // each row is its k values, and then its label, like the rows of a NormalizedDataset.
+    public static DatasetEvaluation evaluate(final Lattice lattice, final int numClasses, final List<Integer[]> rows) {
+        final int[] highestLabelAtOrBelow = highestLabelsAtOrBelow(lattice, numClasses, rows);
+
+        final Counts counts = rows.parallelStream()
+                .collect(() -> new Counts(numClasses),
+                        (partial, row) -> partial.count(lattice, row, highestLabelAtOrBelow),
+                        Counts::add);
+        return new DatasetEvaluation(numClasses, counts);
+    }
+
+    private static int[] highestLabelsAtOrBelow(final Lattice lattice, final int numClasses, final List<Integer[]> rows) {
+        final AtomicIntegerArray highestLabelAt = new AtomicIntegerArray(lattice.size());
+        for (int nodeID = 0; nodeID < lattice.size(); nodeID++) {
+            highestLabelAt.set(nodeID, NO_LABEL);
+        }
+        rows.parallelStream().forEach(row -> {
+            final int label = labelOf(lattice, numClasses, row);
+            if (label != NO_LABEL) {
+                highestLabelAt.accumulateAndGet(lattice.rankOfRow(row), label, Math::max);
+            }
+        });
+
+        final int[] highestLabelAtOrBelow = new int[lattice.size()];
+        for (int nodeID = 0; nodeID < lattice.size(); nodeID++) {
+            int highest = highestLabelAt.get(nodeID);
+            for (int attribute = 0; attribute < lattice.dimension(); attribute++) {
+                final int downNeighbor = lattice.downNeighborID(nodeID, attribute);
+                if (downNeighbor != Lattice.NO_NEIGHBOR) {
+                    highest = Math.max(highest, highestLabelAtOrBelow[downNeighbor]);
+                }
+            }
+            highestLabelAtOrBelow[nodeID] = highest;
+        }
+        return highestLabelAtOrBelow;
+    }
+
+    // NO_LABEL if the row isn't a point of the lattice, or doesn't have one of our classes on the end.
+    private static int labelOf(final Lattice lattice, final int numClasses, final Integer[] row) {
+        if (row.length <= lattice.dimension() || lattice.rankOfRow(row) == Lattice.NO_NEIGHBOR)
+            return NO_LABEL;
+        final int label = row[lattice.dimension()];
+        return label < 0 || label >= numClasses ? NO_LABEL : label;
+    }
+
+    public double accuracy() {
+        return rowsClassified == 0 ? 0.0 : (double) rowsCorrect / rowsClassified;
+    }
+
+    // what one part of the rows added up to.
+    private static final class Counts {
+        private final int numClasses;
+        private final long[] confusion;
+        private long monotonicityViolations = 0;
+        private long rowsImpossible = 0;
+        private long rowsSkipped = 0;
+
+        private Counts(final int numClasses) {
+            this.numClasses = numClasses;
+            this.confusion = new long[numClasses * numClasses];
+        }
+
+        private void count(final Lattice lattice, final Integer[] row, final int[] highestLabelAtOrBelow) {
+            final int label = labelOf(lattice, numClasses, row);
+            if (label == NO_LABEL) {
+                rowsSkipped++;
+                return;
+            }
+            final int nodeID = lattice.rankOfRow(row);
+            if (label < highestLabelAtOrBelow[nodeID]) {
+                monotonicityViolations++;
+            }
+
+            final int predicted = lattice.state.floor(nodeID);
+            if (predicted == Node.IMPOSSIBLE_CLASSIFICATION) {
+                rowsImpossible++;
+                return;
+            }
+            confusion[label * numClasses + predicted]++;
+        }
+
+        private void add(final Counts other) {
+            for (int i = 0; i < confusion.length; i++) {
+                confusion[i] += other.confusion[i];
+            }
+            monotonicityViolations += other.monotonicityViolations;
+            rowsImpossible += other.rowsImpossible;
+            rowsSkipped += other.rowsSkipped;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("accuracy: %.4f (%d of %d rows)%n", accuracy(), rowsCorrect, rowsClassified));
+        sb.append("monotonicityViolations: ").append(monotonicityViolations).append("\n");
+        sb.append("rowsImpossible: ").append(rowsImpossible).append("\n");
+        sb.append("rowsSkipped: ").append(rowsSkipped).append("\n");
+        sb.append("confusion (rows are the labels, columns what we classified them as):\n");
+        for (int actual = 0; actual < numClasses; actual++) {
+            for (int predicted = 0; predicted < numClasses; predicted++) {
+                sb.append(predicted == 0 ? "" : "\t").append(confusion[actual][predicted]);
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
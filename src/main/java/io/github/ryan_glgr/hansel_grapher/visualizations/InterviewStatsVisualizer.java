@@ -103,8 +103,7 @@ public class InterviewStatsVisualizer {
             VisualizationDOT.makeHanselChainDOT(interview.hanselChains, interview.lowUnitsByClass);
 
             // make the expansions picture
-            final Integer[] kValues = interview.kVals;
-            VisualizationDOT.makeExpansionsDOT(interview.data, interview.lowUnitsByClass, kValues);
+            VisualizationDOT.makeExpansionsDOT(interview.lattice, interview.lowUnitsByClass);
             VisualizationDOT.makeRuleTreesDOT(interview.ruleTrees, interview.attributeNames, LowUnit.Type.INCLUSIVE);
             VisualizationDOT.makeRuleTreesDOT(interview.ruleTrees, interview.attributeNames, LowUnit.Type.EXCLUSIVE);
 
@@ -7,8 +7,8 @@ import java.util.*;
 
 import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnit;
 import io.github.ryan_glgr.hansel_grapher.functionrules.RuleNode;
+import io.github.ryan_glgr.hansel_grapher.functionallogic.Lattice;
 import io.github.ryan_glgr.hansel_grapher.functionallogic.Node;
-import io.github.ryan_glgr.hansel_grapher.helper.Util;
 import io.github.ryan_glgr.hansel_grapher.visualizations.gui.GUIHelper;
 
 import java.util.concurrent.CompletableFuture;
@@ -39,35 +39,32 @@ public class VisualizationDOT {
         final String attr = "label = \"" + escapeQuote(label) + "\"" +
                 ", shape = " + NODE_SHAPE +
                 ", style = filled" +
-                ", fillcolor = \"" + GUIHelper.colorToHex(GUIHelper.getColorForClass(temp.classification, Objects.isNull(lowUnitType))) + "\"";
+                ", fillcolor = \"" + GUIHelper.colorToHex(GUIHelper.getColorForClass(temp.getClassification(), Objects.isNull(lowUnitType))) + "\"";
 
         fw.write(temp.hashCode() + " [" + attr + "];\n\t");
     }
 
     // --- makeExpansionsDOT ---
-    public static void makeExpansionsDOT(final HashMap<Integer, Node> allNodes,
-                                         final Map<Integer, Set<LowUnit>> lowUnitsByClass,
-                                         final Integer[] kValues) throws IOException {
+    public static void makeExpansionsDOT(final Lattice lattice,
+                                         final Map<Integer, Set<LowUnit>> lowUnitsByClass) throws IOException {
 
         final Map<Node, LowUnit> nodeLowUnitMap = lowUnitsByClass.values()
                 .stream()
                 .flatMap(Set<LowUnit>::stream)
                 .collect(Collectors.toMap(LowUnit::getDatapoint, Function.identity()));
 
-        final Integer[] kValsToMakeNode = Util.counterInitializer(kValues);
         final HashMap<Node, Node> usedNodes = new HashMap<>();
         final FileWriter fw = new FileWriter(OUTPUT_DIRECTORY + File.separator + EXPANSIONS_FILE_NAME);
         fw.write("digraph G {\n\trankdir = BT;\n\tbgcolor = white;\n\t");
 
-        while (Node.incrementCounter(kValsToMakeNode, kValues)) {
-            final Node temp = allNodes.get(Node.hash(kValsToMakeNode));
+        for (final Node temp : lattice.getNodes()) {
             if (!usedNodes.containsKey(temp)) {
                 usedNodes.put(temp, temp);
                 final LowUnit lowUnit = nodeLowUnitMap.get(temp);
                 writeNode(fw, temp, Objects.isNull(lowUnit) ? null : lowUnit.getLowUnitType());
             }
 
-            for (final Node ex : temp.upExpansions) {
+            for (final Node ex : temp.getUpExpansions()) {
                 if (ex == null) continue;
                 if (!usedNodes.containsKey(ex)) {
                     usedNodes.put(ex, ex);
@@ -84,8 +81,8 @@ public class VisualizationDOT {
     }
 
     // --- makeHanselChainDOT ---
-    public static void makeHanselChainDOT(ArrayList<ArrayList<Node>> chains, final Map<Integer, Set<LowUnit>> lowUnitsByClass) throws IOException {
-        chains = GUIHelper.sortChainsForVisualization(chains);
+    public static void makeHanselChainDOT(final List<? extends List<Node>> hanselChains, final Map<Integer, Set<LowUnit>> lowUnitsByClass) throws IOException {
+        final List<List<Node>> chains = GUIHelper.sortChainsForVisualization(hanselChains);
 
         final Map<Node, LowUnit> reverseMap = lowUnitsByClass.values()
                 .stream()
@@ -97,7 +94,7 @@ public class VisualizationDOT {
 
         final ArrayList<Node> middleNodes = new ArrayList<>();
 
-        for (final ArrayList<Node> chain : chains) {
+        for (final List<Node> chain : chains) {
             middleNodes.add(chain.get(chain.size() / 2));
 
             for (final Node temp : chain) {
@@ -6,6 +6,7 @@ import io.github.ryan_glgr.hansel_grapher.functionallogic.lowunits.LowUnit;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 public class GUIHelper {
@@ -47,38 +48,39 @@ public class GUIHelper {
     public static String nodeLabel(final Node temp, final boolean isLow) {
 
         final String cls;
-        if (Node.IMPOSSIBLE_CLASSIFICATION.equals(temp.classification)) {
+        if (temp.getClassification() == Node.IMPOSSIBLE_CLASSIFICATION) {
             cls = "N/A";
         } else {
             cls = (isLow)
-                ? String.format("%s%s%s", LEFT_FLOOR, temp.classification, RIGHT_FLOOR)
-                : String.format(" %s ", temp.classification);
+                ? String.format("%s%s%s", LEFT_FLOOR, temp.getClassification(), RIGHT_FLOOR)
+                : String.format(" %s ", temp.getClassification());
         }
         return Arrays.toString(temp.values) + "\\nClassification: " + cls;
     }
 
     public static String[] nodeLabelArray(final Node temp, final LowUnit.Type lowUnitType) {
         final String cls;
-        if (Node.IMPOSSIBLE_CLASSIFICATION.equals(temp.classification)) {
+        if (temp.getClassification() == Node.IMPOSSIBLE_CLASSIFICATION) {
             cls = "N/A";
         } else {
             cls = switch (lowUnitType) {
-                case INCLUSIVE -> String.format("%s%s%s", LEFT_FLOOR, temp.classification, RIGHT_FLOOR);
-                case EXCLUSIVE -> String.format("%s%s%s", LEFT_CEILING, temp.classification, RIGHT_CEILING);
-                case null -> String.format(" %s ", temp.classification);
+                case INCLUSIVE -> String.format("%s%s%s", LEFT_FLOOR, temp.getClassification(), RIGHT_FLOOR);
+                case EXCLUSIVE -> String.format("%s%s%s", LEFT_CEILING, temp.getClassification(), RIGHT_CEILING);
+                case null -> String.format(" %s ", temp.getClassification());
             };
         }
         return new String[] { Arrays.toString(temp.values),"Classification: " + cls };
     }
 
 
-    public static ArrayList<ArrayList<Node>> sortChainsForVisualization(final ArrayList<ArrayList<Node>> chainSet){
+    public static ArrayList<List<Node>> sortChainsForVisualization(final List<? extends List<Node>> hanselChainSet){
 
-        // Apply the sort result back to hanselChainSet
-        chainSet.sort((final ArrayList<Node> a, final ArrayList<Node> b) -> b.size() - a.size());
+        // sort a copy, the chain set itself is read only.
+        final ArrayList<List<Node>> chainSet = new ArrayList<>(hanselChainSet);
+        chainSet.sort((final List<Node> a, final List<Node> b) -> b.size() - a.size());
 
         // now give them the diamond shape.
-        final ArrayList<ArrayList<Node>> newOrdering = new ArrayList<ArrayList<Node>>();
+        final ArrayList<List<Node>> newOrdering = new ArrayList<>();
         for(int i = 0; i < chainSet.size(); i++){
             // if even, put it in the front, if odd, the back. that is how we will alternate and get that shape.
             if (i % 2 == 0){
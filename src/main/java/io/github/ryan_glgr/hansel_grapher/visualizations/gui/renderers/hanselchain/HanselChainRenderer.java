@@ -59,7 +59,7 @@ public class HanselChainRenderer extends PanZoomRenderer implements LiveIntervie
 
     // Assigned once on the GL thread in init() and never mutated afterwards.
     // All inter-thread communication goes through colorsDirty.
-    private final ArrayList<ArrayList<Node>> chains;
+    private final ArrayList<List<Node>> chains;
     private final int totalNodes;
     private final Map<Node, LowUnit> lowUnitNodes;
     private final int numExclusiveLowUnits;
@@ -115,7 +115,7 @@ public class HanselChainRenderer extends PanZoomRenderer implements LiveIntervie
         float minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
 
         for (int c = 0; c < numChains; c++) {
-            final ArrayList<Node> chain = chains.get(c);
+            final List<Node> chain = chains.get(c);
             columnX[c] = c * COL_STEP;
 
             final int startRow = (longestChainHeight - chain.size()) / 2;  // centers within the padded grid
@@ -201,9 +201,9 @@ public class HanselChainRenderer extends PanZoomRenderer implements LiveIntervie
                     continue;
 
                 final LowUnit.Type lowUnitType = isLowUnit(node);
-                final int nodeClassWithColorShuffle = node.classification.equals(Node.IMPOSSIBLE_CLASSIFICATION)
+                final int nodeClassWithColorShuffle = node.getClassification() == Node.IMPOSSIBLE_CLASSIFICATION
                         ? Node.IMPOSSIBLE_CLASSIFICATION
-                        : (node.classification + classificationColorShuffleCounter) % numClasses;
+                        : (node.getClassification() + classificationColorShuffleCounter) % numClasses;
 
                 // exclusive low units get colors drawn twice, once for their border which will be next class, and once for their own class.
                 final boolean isExclusiveLowUnit = LowUnit.Type.EXCLUSIVE.equals(lowUnitType);
@@ -212,7 +212,7 @@ public class HanselChainRenderer extends PanZoomRenderer implements LiveIntervie
                     // since that is not possible. there is no higher class it could be.
                     final int exclusiveNodeTargetClass = (numClasses == (nodeClassWithColorShuffle + nodeClassWithColorShuffle + 1))
                             ? Node.IMPOSSIBLE_CLASSIFICATION
-                            : (node.classification + classificationColorShuffleCounter + 1) % numClasses;
+                            : (node.getClassification() + classificationColorShuffleCounter + 1) % numClasses;
                     populateColorBuffer(exclusiveNodeTargetClass, true, buffer);
                 }
                 // now draw the colors for the node itself. If it is exclusive, we do not want to color it AGAIN with low unit brightness, since it looks strange.
@@ -151,9 +151,8 @@ public class MainWindow {
 
     private void exportChainsAndExpansions() {
         try {
-            VisualizationDOT.makeExpansionsDOT(interview.data,
-                    interview.lowUnitsByClass,
-                    interview.interviewStats.kValues);
+            VisualizationDOT.makeExpansionsDOT(interview.lattice,
+                    interview.lowUnitsByClass);
             VisualizationDOT.makeHanselChainDOT(interview.hanselChains, interview.lowUnitsByClass);
             VisualizationDOT.compileDotAsync("out/Expansions.dot");
             VisualizationDOT.compileDotAsync("out/HanselChains.dot");